@@ -23,6 +23,7 @@ public class MainApp extends JFrame {
     private static final Color RED = new Color(220, 20, 60);
     private static final Color HOVER_RED = new Color(200, 20, 55);
     private static final Color PRESS_RED = new Color(160, 15, 45);
+    private static final int AUTH_LOG_VIEW_LIMIT = 500;
 
     // Services used here
     private final EmailService emailService = new EmailService();
@@ -30,9 +31,11 @@ public class MainApp extends JFrame {
 
     // Logged-in user
     private final User currentUser;
+    private final UserSession session;
 
     public MainApp() {
-        currentUser = loginService.getCurrentUser();
+        session = loginService.getCurrentSession();
+        currentUser = (session == null) ? null : session.getUser();
 
         if (currentUser == null) {
             JOptionPane.showMessageDialog(null,
@@ -70,6 +73,12 @@ public class MainApp extends JFrame {
         
         
         setLocationRelativeTo(null);
+
+        // SMTP checked in the background; System Services shows the cached result
+        emailService.startHealthMonitor(60_000);
+
+        // queued emails (outbox) are delivered through this same service
+        EmailOutbox.getInstance(emailService).setSender(emailService);
         
         initComponents();
     }
@@ -362,7 +371,7 @@ public class MainApp extends JFrame {
         }
 
         JDialog dialog = new JDialog(this, "System Services", true);
-        dialog.setSize(520, 360);
+        dialog.setSize(520, 480);
         dialog.setLocationRelativeTo(this);
 
         JPanel panel = new JPanel();
@@ -374,14 +383,27 @@ public class MainApp extends JFrame {
         titleLabel.setFont(new Font("Arial", Font.BOLD, 18));
         titleLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
 
+        JLabel smtpStatusLabel = new JLabel();
+        smtpStatusLabel.setFont(new Font("Arial", Font.PLAIN, 13));
+        smtpStatusLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+        showSmtpStatus(smtpStatusLabel);
+
+        // cached status only: never waits on the network
+        Timer statusTimer = new Timer(1000, e -> showSmtpStatus(smtpStatusLabel));
+        statusTimer.start();
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                statusTimer.stop();
+            }
+        });
+
         JButton testEmailButton = createDialogButton(
                 "Test Email", BLUE, false,
                 e -> {
-                    boolean ok = emailService.testConnection();
-                    JOptionPane.showMessageDialog(dialog,
-                            ok ? "Email test successful." : "Email test failed.",
-                            "Email Test",
-                            ok ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.ERROR_MESSAGE);
+                    // fresh probe in the background, the label picks it up
+                    emailService.requestHealthCheck();
+                    smtpStatusLabel.setText("Email server: checking...");
                 }
         );
 
@@ -390,23 +412,131 @@ public class MainApp extends JFrame {
                 e -> viewLoginLogs()
         );
 
+        JButton notifyButton = createDialogButton(
+                "Notify Students (Bulk)", BLUE, false,
+                e -> notifyCohorts(dialog, (JButton) e.getSource())
+        );
+
+        JButton metricsButton = createDialogButton(
+                "Email Metrics", BLUE, false,
+                e -> viewEmailMetrics(dialog)
+        );
+
 
         testEmailButton.setAlignmentX(Component.CENTER_ALIGNMENT);
         viewLogsButton.setAlignmentX(Component.CENTER_ALIGNMENT);
+        notifyButton.setAlignmentX(Component.CENTER_ALIGNMENT);
+        metricsButton.setAlignmentX(Component.CENTER_ALIGNMENT);
 
         panel.add(titleLabel);
-        panel.add(Box.createVerticalStrut(25));
+        panel.add(Box.createVerticalStrut(10));
+        panel.add(smtpStatusLabel);
+        panel.add(Box.createVerticalStrut(15));
         panel.add(testEmailButton);
         panel.add(Box.createVerticalStrut(12));
         panel.add(viewLogsButton);
+        panel.add(Box.createVerticalStrut(12));
+        panel.add(notifyButton);
+        panel.add(Box.createVerticalStrut(12));
+        panel.add(metricsButton);
         panel.add(Box.createVerticalStrut(25));
 
         dialog.add(panel);
         dialog.setVisible(true);
     }
 
+    private void showSmtpStatus(JLabel label) {
+        SmtpHealthMonitor.Status st = emailService.getHealth();
+
+        String text = "Email server: " + st;
+        long age = st.getAgeMillis();
+        if (age >= 0) text += " - checked " + (age / 1000) + "s ago";
+
+        label.setText(text);
+        label.setForeground(st.isUp() ? new Color(0, 128, 0) : st.isDown() ? RED : Color.DARK_GRAY);
+    }
+
+    // Emails every NOT_ELIGIBLE student + every student with an active recovery plan.
+    private void notifyCohorts(JDialog owner, JButton button) {
+        int confirm = JOptionPane.showConfirmDialog(owner,
+                "Email every NOT ELIGIBLE student and every student\nwith an active recovery plan?",
+                "Bulk Notification",
+                JOptionPane.YES_NO_OPTION);
+        if (confirm != JOptionPane.YES_OPTION) return;
+
+        button.setEnabled(false);
+
+        new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() throws Exception {
+                StudentRepository studentRepo = new StudentRepository();
+                CourseRepository courseRepo = new CourseRepository();
+                EligibilityService eligibility = new EligibilityService(studentRepo, courseRepo,
+                        new GradeFileHandler("data/grades.txt"),
+                        new RegistrationRepository("data/registrations.txt"));
+
+                // Gmail-friendly: ~5 msg/s, small bursts, 4 connections
+                BulkMailer mailer = new BulkMailer(emailService, 5.0, 10, 4);
+
+                BulkMailer.RunSummary notEligible = mailer.send(
+                        BulkMailer.fromNotEligible(eligibility.computeAll(), studentRepo),
+                        EmailTemplates.NOT_ELIGIBLE);
+
+                BulkMailer.RunSummary plans = mailer.send(
+                        BulkMailer.fromActiveRecoveryPlans(studentRepo, courseRepo),
+                        EmailTemplates.RECOVERY_PLAN);
+
+                return "Not eligible students:\n" + notEligible + "\n\n" +
+                       "Active recovery plans:\n" + plans;
+            }
+
+            @Override
+            protected void done() {
+                button.setEnabled(true);
+                try {
+                    JOptionPane.showMessageDialog(owner, get(), "Bulk Notification", JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(owner, "Bulk notification failed: " + ex.getMessage(),
+                            "Bulk Notification", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    // Snapshot of EmailService counters / latencies, with export to a text file.
+    private void viewEmailMetrics(JDialog owner) {
+        EmailMetrics metrics = EmailService.getMetrics();
+        String snapshot = metrics.dump();
+
+        JTextArea textArea = new JTextArea(snapshot, 25, 70);
+        textArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        textArea.setEditable(false);
+        textArea.setCaretPosition(0);
+
+        Object[] options = {"Export...", "Reset", "Close"};
+        int choice = JOptionPane.showOptionDialog(owner, new JScrollPane(textArea),
+                "Email Metrics", JOptionPane.DEFAULT_OPTION, JOptionPane.PLAIN_MESSAGE,
+                null, options, options[2]);
+
+        if (choice == 0) {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setSelectedFile(new java.io.File("email_metrics_" + System.currentTimeMillis() + ".txt"));
+            if (chooser.showSaveDialog(owner) != JFileChooser.APPROVE_OPTION) return;
+
+            boolean ok = metrics.exportSnapshot(chooser.getSelectedFile());
+            JOptionPane.showMessageDialog(owner,
+                    ok ? "Saved: " + chooser.getSelectedFile().getPath() : "Could not save the snapshot.",
+                    "Email Metrics",
+                    ok ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.ERROR_MESSAGE);
+
+        } else if (choice == 1) {
+            metrics.reset();
+        }
+    }
+
     private void viewLoginLogs() {
-        java.util.List<String> logs = loginService.readAuthLog();
+        // only the end of the log is read
+        java.util.List<String> logs = loginService.readRecentAuthLog(AUTH_LOG_VIEW_LIMIT);
 
         JTextArea textArea = new JTextArea(20, 50);
         textArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
@@ -416,7 +546,7 @@ public class MainApp extends JFrame {
             textArea.setText("No login logs found.");
         } else {
             StringBuilder sb = new StringBuilder();
-            sb.append("AUTHENTICATION LOG\n");
+            sb.append("AUTHENTICATION LOG (last ").append(AUTH_LOG_VIEW_LIMIT).append(" entries)\n");
             sb.append("==========================================\n\n");
             for (String entry : logs) sb.append(entry).append("\n");
             textArea.setText(sb.toString());
@@ -434,6 +564,7 @@ public class MainApp extends JFrame {
 
         if (confirm == JOptionPane.YES_OPTION) {
             loginService.logout();
+            emailService.stopHealthMonitor();
             SwingUtilities.invokeLater(() -> {
                 new LoginFrame().setVisible(true);
                 dispose();
@@ -441,9 +572,9 @@ public class MainApp extends JFrame {
         }
     }
 
+    // checked against this window's session (closed / deactivated = no admin rights)
     private boolean isAdmin() {
-        return currentUser != null && currentUser.getRole() != null
-                && currentUser.getRole().equalsIgnoreCase("ADMIN");
+        return loginService.isAdmin(session);
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,153 @@
+package benchmark;
+
+import services.BulkMailer;
+import services.EmailService;
+import services.EmailTemplates;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * EmailBenchmark
+ * Measures EmailService throughput (messages/second) against the in-process
+ * FakeSmtpServer, so it runs on a machine with no network:
+ * - single   : one new connection per message (Transport.send), one thread
+ * - pooled   : pooled connections, several sender threads
+ * - bulk     : BulkMailer run (templated, rate limiter effectively off)
+ * - attach   : pooled sends with the same attachment (attachment cache)
+ *
+ *   java -cp "build/classes;lib/*" benchmark.EmailBenchmark [messages] [threads] [connectDelayMs] [attachmentKb]
+ */
+public class EmailBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int messages = arg(args, 0, 300);
+        int threads = arg(args, 1, 4);
+        int connectDelayMs = arg(args, 2, 20);
+        int attachmentKb = arg(args, 3, 200);
+
+        try (FakeSmtpServer server = new FakeSmtpServer(0, connectDelayMs, false)) {
+            EmailService email = new EmailService(server.getHost(), server.getPort(), "bench@crs.local", "");
+
+            System.out.println("Fake SMTP on port " + server.getPort() + ", greeting delay " + connectDelayMs
+                    + " ms, " + messages + " messages, " + threads + " threads");
+            System.out.println(String.format("%-8s %8s %10s %10s %12s", "Mode", "sent", "ms", "msg/s", "connections"));
+
+            // warm-up (class loading, JIT)
+            runSingle(email, Math.min(20, messages));
+
+            server.reset();
+            report("single", runSingle(email, messages), server);
+
+            server.reset();
+            email.enablePooling(threads);
+            report("pooled", runConcurrent(email, messages, threads, null), server);
+            email.disablePooling();
+
+            server.reset();
+            report("bulk", runBulk(email, messages, threads), server);
+
+            File attachment = createAttachment(attachmentKb);
+            try {
+                server.reset();
+                email.enablePooling(threads);
+                report("attach", runConcurrent(email, messages, threads, attachment), server);
+                email.disablePooling();
+            } finally {
+                attachment.delete();
+            }
+
+            System.out.println("Attachment cache hits/misses: "
+                    + EmailService.getAttachmentCache().getHits() + "/" + EmailService.getAttachmentCache().getMisses());
+        }
+    }
+
+    // ---------------- Scenarios ----------------
+
+    private static Result runSingle(EmailService email, int messages) {
+        long start = System.nanoTime();
+        int sent = 0;
+        for (int i = 0; i < messages; i++) {
+            if (email.sendEmail("student" + i + "@crs.local", "Benchmark " + i, body(i))) sent++;
+        }
+        return new Result(sent, System.nanoTime() - start);
+    }
+
+    private static Result runConcurrent(EmailService email, int messages, int threads, File attachment)
+            throws InterruptedException {
+        AtomicInteger sent = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < messages; i++) {
+            final int n = i;
+            pool.execute(() -> {
+                boolean ok = (attachment == null)
+                        ? email.sendEmail("student" + n + "@crs.local", "Benchmark " + n, body(n))
+                        : email.sendEmailWithAttachment("student" + n + "@crs.local", "Benchmark " + n, body(n), attachment);
+                if (ok) sent.incrementAndGet();
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.HOURS);
+
+        return new Result(sent.get(), System.nanoTime() - start);
+    }
+
+    private static Result runBulk(EmailService email, int messages, int threads) throws InterruptedException {
+        List<BulkMailer.Recipient> recipients = new ArrayList<BulkMailer.Recipient>();
+        for (int i = 0; i < messages; i++) {
+            recipients.add(new BulkMailer.Recipient("student" + i + "@crs.local", "S" + i,
+                    "Student " + i, "C201", body(i), ""));
+        }
+
+        BulkMailer mailer = new BulkMailer(email, 1_000_000, messages, threads);
+
+        long start = System.nanoTime();
+        BulkMailer.RunSummary summary = mailer.send(recipients, EmailTemplates.RECOVERY_PLAN);
+        return new Result(summary.sent, System.nanoTime() - start);
+    }
+
+    // ---------------- Helpers ----------------
+
+    private static void report(String mode, Result r, FakeSmtpServer server) {
+        double ms = r.nanos / 1_000_000.0;
+        System.out.println(String.format("%-8s %8d %10.0f %10.1f %12d",
+                mode, r.sent, ms, r.sent / (ms / 1000.0), server.getConnectionCount()));
+    }
+
+    private static String body(int i) {
+        return "Hello Student " + i + ",\n\nThis is a benchmark message.\n\nCRS System";
+    }
+
+    private static File createAttachment(int kb) throws Exception {
+        File f = File.createTempFile("crs-bench-", ".pdf");
+        byte[] data = new byte[kb * 1024];
+        new Random(42).nextBytes(data);
+        try (FileOutputStream out = new FileOutputStream(f)) {
+            out.write(data);
+        }
+        return f;
+    }
+
+    private static int arg(String[] args, int i, int def) {
+        return (args.length > i) ? Integer.parseInt(args[i]) : def;
+    }
+
+    private static class Result {
+        final int sent;
+        final long nanos;
+
+        Result(int sent, long nanos) {
+            this.sent = sent;
+            this.nanos = nanos;
+        }
+    }
+}
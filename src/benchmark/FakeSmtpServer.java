@@ -0,0 +1,210 @@
+package benchmark;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * FakeSmtpServer
+ * In-process SMTP stand-in: a plain socket listener on localhost that
+ * accepts every message and records it. No TLS, no AUTH.
+ * Lets EmailService be exercised and measured without a network.
+ *
+ * connectDelayMillis delays the greeting, to imitate the TCP + TLS + AUTH
+ * cost of a real provider (what connection pooling saves).
+ */
+public class FakeSmtpServer implements Closeable {
+
+    public static class ReceivedMessage {
+        public final String from;
+        public final List<String> recipients;
+        public final String data;
+
+        ReceivedMessage(String from, List<String> recipients, String data) {
+            this.from = from;
+            this.recipients = Collections.unmodifiableList(recipients);
+            this.data = data;
+        }
+    }
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService handlers = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "fake-smtp");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final long connectDelayMillis;
+    private final boolean keepMessages;
+
+    private final List<ReceivedMessage> messages = Collections.synchronizedList(new ArrayList<ReceivedMessage>());
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger messageCount = new AtomicInteger();
+    private final AtomicLong bytesReceived = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    // port 0 = any free port (see getPort)
+    public FakeSmtpServer(int port, long connectDelayMillis, boolean keepMessages) throws IOException {
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.connectDelayMillis = Math.max(0, connectDelayMillis);
+        this.keepMessages = keepMessages;
+
+        Thread acceptor = new Thread(this::acceptLoop, "fake-smtp-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public FakeSmtpServer() throws IOException {
+        this(0, 0, true);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public String getHost() {
+        return serverSocket.getInetAddress().getHostAddress();
+    }
+
+    public int getConnectionCount() {
+        return connections.get();
+    }
+
+    public int getMessageCount() {
+        return messageCount.get();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    // only filled when keepMessages = true
+    public List<ReceivedMessage> getMessages() {
+        synchronized (messages) {
+            return new ArrayList<ReceivedMessage>(messages);
+        }
+    }
+
+    public void reset() {
+        messages.clear();
+        connections.set(0);
+        messageCount.set(0);
+        bytesReceived.set(0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverSocket.close();
+        handlers.shutdownNow();
+    }
+
+    // ---------------- Server ----------------
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.incrementAndGet();
+                handlers.execute(() -> handle(socket));
+            } catch (IOException e) {
+                if (running) System.out.println("Fake SMTP accept error: " + e.getMessage());
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.ISO_8859_1));
+             OutputStream out = s.getOutputStream()) {
+
+            if (connectDelayMillis > 0) Thread.sleep(connectDelayMillis);
+            reply(out, "220 localhost CRS fake SMTP ready");
+
+            String from = "";
+            List<String> rcpts = new ArrayList<String>();
+            String line;
+
+            while ((line = in.readLine()) != null) {
+                String cmd = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+
+                if (cmd.equals("EHLO")) {
+                    reply(out, "250-localhost\r\n250-8BITMIME\r\n250 SIZE 104857600");
+                } else if (cmd.equals("HELO")) {
+                    reply(out, "250 localhost");
+                } else if (cmd.equals("MAIL")) {
+                    from = argument(line);
+                    rcpts = new ArrayList<String>();
+                    reply(out, "250 OK");
+                } else if (cmd.equals("RCPT")) {
+                    rcpts.add(argument(line));
+                    reply(out, "250 OK");
+                } else if (cmd.equals("DATA")) {
+                    reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                    String data = readData(in);
+                    messageCount.incrementAndGet();
+                    if (keepMessages) messages.add(new ReceivedMessage(from, rcpts, data));
+                    reply(out, "250 OK queued");
+                } else if (cmd.equals("RSET")) {
+                    from = "";
+                    rcpts = new ArrayList<String>();
+                    reply(out, "250 OK");
+                } else if (cmd.equals("NOOP")) {
+                    reply(out, "250 OK");
+                } else if (cmd.equals("QUIT")) {
+                    reply(out, "221 Bye");
+                    return;
+                } else {
+                    reply(out, "502 Command not implemented");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ignored) {
+            // client went away
+        }
+    }
+
+    // reads until the lone "." line, undoing dot-stuffing
+    private String readData(BufferedReader in) throws IOException {
+        StringBuilder sb = keepMessages ? new StringBuilder(4096) : null;
+        String line;
+
+        while ((line = in.readLine()) != null) {
+            if (line.equals(".")) break;
+            if (line.startsWith("..")) line = line.substring(1);
+
+            bytesReceived.addAndGet(line.length() + 2);
+            if (sb != null) sb.append(line).append("\r\n");
+        }
+        return (sb == null) ? "" : sb.toString();
+    }
+
+    private String argument(String line) {
+        int lt = line.indexOf('<');
+        int gt = line.indexOf('>', lt + 1);
+        if (lt >= 0 && gt > lt) return line.substring(lt + 1, gt);
+
+        int colon = line.indexOf(':');
+        return (colon < 0) ? "" : line.substring(colon + 1).trim();
+    }
+
+    private void reply(OutputStream out, String text) throws IOException {
+        out.write((text + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+    }
+}
@@ -0,0 +1,130 @@
+package benchmark;
+
+import services.CredentialCache;
+import services.PasswordHasher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LoginBenchmark
+ * Password check cost per PBKDF2 iteration count, the same path LoginService.authenticate
+ * takes (CredentialCache first, PasswordHasher.verify on a miss). Runs in memory,
+ * users.txt and the auth log are not touched.
+ * - cold   : every login misses the cache (first login / cache expired)
+ * - cached : repeat logins within the cache TTL
+ *
+ *   java -cp "build/classes;lib/*" benchmark.LoginBenchmark [logins] [threads] [iterations,...]
+ */
+public class LoginBenchmark {
+
+    private static final int USERS = 50;
+    private static final int WARMUP_LOGINS = 20;
+
+    public static void main(String[] args) throws Exception {
+        int logins = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+        int threads = (args.length > 1) ? Integer.parseInt(args[1]) : 4;
+        int[] settings = (args.length > 2) ? parseList(args[2]) : new int[]{10_000, 50_000, 100_000, 200_000};
+
+        System.out.println(logins + " logins per run, " + threads + " threads, " + USERS + " users");
+        System.out.println(String.format("%-10s %-7s %10s %10s %10s %12s",
+                "Iterations", "Mode", "avg ms", "p95 ms", "max ms", "logins/s"));
+
+        for (int iterations : settings) {
+            PasswordHasher hasher = new PasswordHasher(iterations);
+
+            String[] stored = new String[USERS];
+            for (int i = 0; i < USERS; i++) stored[i] = hasher.hash(password(i));
+
+            // warm up JIT + JCE provider
+            run(hasher, null, stored, WARMUP_LOGINS, 1);
+
+            report(iterations, "cold", run(hasher, null, stored, logins, threads));
+
+            CredentialCache cache = new CredentialCache(60_000, USERS * 2);
+            run(hasher, cache, stored, USERS, 1);   // fill
+            report(iterations, "cached", run(hasher, cache, stored, logins, threads));
+        }
+    }
+
+    // ---------------- Scenario ----------------
+
+    private static Result run(PasswordHasher hasher, CredentialCache cache, String[] stored,
+                              int logins, int threads) throws InterruptedException {
+        long[] latencies = new long[logins];
+        AtomicInteger ok = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < logins; i++) {
+            final int n = i;
+            pool.execute(() -> {
+                int u = n % stored.length;
+                long t0 = System.nanoTime();
+                if (login(hasher, cache, "user" + u, password(u), stored[u])) ok.incrementAndGet();
+                latencies[n] = System.nanoTime() - t0;
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.HOURS);
+
+        if (ok.get() != logins) System.err.println("Warning: " + (logins - ok.get()) + " logins failed");
+        return new Result(latencies, System.nanoTime() - start);
+    }
+
+    // same order of checks as LoginService.checkPassword
+    private static boolean login(PasswordHasher hasher, CredentialCache cache,
+                                 String username, String password, String stored) {
+        if (cache != null && cache.isVerified(username, password, stored)) return true;
+        if (!hasher.verify(password, stored)) return false;
+        if (cache != null) cache.remember(username, password, stored);
+        return true;
+    }
+
+    // ---------------- Helpers ----------------
+
+    private static void report(int iterations, String mode, Result r) {
+        long[] sorted = r.latencies.clone();
+        Arrays.sort(sorted);
+
+        double sum = 0;
+        for (long l : sorted) sum += l;
+
+        double avgMs = sum / sorted.length / 1_000_000.0;
+        double p95Ms = sorted[(int) Math.min(sorted.length - 1, Math.ceil(sorted.length * 0.95) - 1)] / 1_000_000.0;
+        double maxMs = sorted[sorted.length - 1] / 1_000_000.0;
+        double perSec = sorted.length / (r.nanos / 1_000_000_000.0);
+
+        System.out.println(String.format("%-10d %-7s %10.3f %10.3f %10.3f %12.1f",
+                iterations, mode, avgMs, p95Ms, maxMs, perSec));
+    }
+
+    private static String password(int i) {
+        return "Pass" + (1000 + i);
+    }
+
+    private static int[] parseList(String s) {
+        List<Integer> values = new ArrayList<Integer>();
+        for (String part : s.split(",")) {
+            if (!part.trim().isEmpty()) values.add(Integer.parseInt(part.trim()));
+        }
+        int[] out = new int[values.size()];
+        for (int i = 0; i < out.length; i++) out[i] = values.get(i);
+        return out;
+    }
+
+    private static class Result {
+        final long[] latencies;
+        final long nanos;
+
+        Result(long[] latencies, long nanos) {
+            this.latencies = latencies;
+            this.nanos = nanos;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package benchmark;
+
+import model.Student;
+import model.Transcript;
+import repository.GradeFileHandler;
+import repository.StudentRepository;
+import services.AcademicReportPDFService;
+import services.AcademicReportPDFService.PdfProfile;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ReportOutputBenchmark
+ * Compares file size and render time of the PDF output profiles
+ * for every student that has grades. Renders to memory, nothing is written to /reports.
+ *
+ * Run from the project folder (uses data/):
+ *   java -cp "build/classes;lib/*" benchmark.ReportOutputBenchmark [iterations]
+ */
+public class ReportOutputBenchmark {
+
+    private static final int WARMUP_ROUNDS = 20;
+
+    public static void main(String[] args) throws Exception {
+        int iterations = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+
+        AcademicReportPDFService service = new AcademicReportPDFService();
+        GradeFileHandler gradeFile = new GradeFileHandler("data/grades.txt");
+
+        // build transcripts once, so only PDF layout + compression is measured
+        List<Transcript> transcripts = new ArrayList<Transcript>();
+        for (Student s : new StudentRepository().loadAllStudents()) {
+            if (gradeFile.hasGrades(s.getStudentId())) {
+                transcripts.add(service.buildTranscript(s.getStudentId(), ""));
+            }
+        }
+
+        if (transcripts.isEmpty()) {
+            System.out.println("No students with grades in data/grades.txt - nothing to benchmark.");
+            return;
+        }
+
+        System.out.println("Transcripts: " + transcripts.size() + ", iterations: " + iterations);
+        System.out.println(String.format("%-10s %12s %12s %14s", "Profile", "avg bytes", "avg ms", "reports/sec"));
+
+        long standardBytes = 0;
+        for (PdfProfile profile : PdfProfile.values()) {
+            // warm up JIT + iText font metrics
+            run(service, transcripts, profile, WARMUP_ROUNDS);
+
+            long start = System.nanoTime();
+            long bytes = run(service, transcripts, profile, iterations);
+            long elapsed = System.nanoTime() - start;
+
+            int reports = iterations * transcripts.size();
+            double avgBytes = (double) bytes / reports;
+            double avgMs = elapsed / 1_000_000.0 / reports;
+
+            System.out.println(String.format("%-10s %12.0f %12.3f %14.1f",
+                    profile, avgBytes, avgMs, reports / (elapsed / 1_000_000_000.0)));
+
+            if (profile == PdfProfile.STANDARD) {
+                standardBytes = bytes;
+            } else if (standardBytes > 0) {
+                System.out.println(String.format("%-10s size vs STANDARD: %.1f%%",
+                        "", 100.0 * bytes / standardBytes));
+            }
+        }
+    }
+
+    // returns total bytes produced
+    private static long run(AcademicReportPDFService service, List<Transcript> transcripts,
+                            PdfProfile profile, int rounds) throws Exception {
+        long total = 0;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+
+        for (int i = 0; i < rounds; i++) {
+            for (Transcript t : transcripts) {
+                out.reset();
+                service.renderPdf(t, out, profile);
+                total += out.size();
+            }
+        }
+        return total;
+    }
+}
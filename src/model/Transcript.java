@@ -0,0 +1,89 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Transcript
+ * Renderer-agnostic report data for ONE student:
+ * course rows (latest attempt per course) + CGPA totals.
+ * Used by the PDF, HTML and CSV report writers.
+ */
+public class Transcript {
+
+    private final Student student;
+    private final String semester;
+    private final List<Row> rows;
+    private final int totalCredits;
+    private final double totalPoints;
+
+    public Transcript(Student student, String semester, List<Row> rows) {
+        this.student = student;
+        this.semester = clean(semester);
+        this.rows = (rows == null) ? new ArrayList<Row>() : new ArrayList<Row>(rows);
+
+        int credits = 0;
+        double points = 0.0;
+        for (Row r : this.rows) {
+            credits += r.getCreditHours();
+            points += r.getGradePoint() * r.getCreditHours();
+        }
+        this.totalCredits = credits;
+        this.totalPoints = points;
+    }
+
+    // ---------- Getters ----------
+
+    public Student getStudent() { return student; }
+
+    // empty = all semesters
+    public String getSemester() { return semester; }
+
+    public String getSemesterLabel() {
+        return semester.isEmpty() ? "(All)" : semester;
+    }
+
+    public List<Row> getRows() { return Collections.unmodifiableList(rows); }
+
+    public int getTotalCredits() { return totalCredits; }
+
+    public double getTotalPoints() { return totalPoints; }
+
+    public double getCgpa() {
+        return (totalCredits == 0) ? 0.0 : (totalPoints / totalCredits);
+    }
+
+    public boolean isEmpty() {
+        return rows.isEmpty();
+    }
+
+    // ---------- Helper ----------
+
+    private static String clean(String s) {
+        return (s == null) ? "" : s.trim();
+    }
+
+    // One course line in the transcript.
+    public static class Row {
+        private final String courseCode;
+        private final String courseTitle;
+        private final int creditHours;
+        private final String gradeLetter;
+        private final double gradePoint;
+
+        public Row(String courseCode, String courseTitle, int creditHours, String gradeLetter, double gradePoint) {
+            this.courseCode = clean(courseCode);
+            this.courseTitle = clean(courseTitle);
+            this.creditHours = creditHours;
+            this.gradeLetter = clean(gradeLetter);
+            this.gradePoint = gradePoint;
+        }
+
+        public String getCourseCode() { return courseCode; }
+        public String getCourseTitle() { return courseTitle; }
+        public int getCreditHours() { return creditHours; }
+        public String getGradeLetter() { return gradeLetter; }
+        public double getGradePoint() { return gradePoint; }
+    }
+}
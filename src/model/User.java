@@ -4,7 +4,7 @@ import java.io.Serializable;
 
 /*
  * User class:
- * - Stores login info (username/password)
+ * - Stores login info (username + password hash, see services.PasswordHasher)
  * - Stores role (ADMIN/OFFICER)
  * - Stores email for password recovery
  * - Can be activated/deactivated
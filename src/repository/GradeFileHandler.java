@@ -5,7 +5,12 @@ import model.Grade;
 import java.io.*;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * GradeFileHandler
@@ -19,6 +24,13 @@ public class GradeFileHandler {
     public static final String HEADER = "StudentID|CourseID|Attempt|Grade";
     private final File file;
 
+    // student ids (lower-case) that have at least one grade
+    private final Set<String> gradedStudentIds = new HashSet<String>();
+
+    // file stamp the index was built from (other handlers may write the same file)
+    private long indexedModified = -1;
+    private long indexedLength = -1;
+
     public GradeFileHandler(String path) {
         file = new File(path);
         ensureFileAndHeader();
@@ -102,7 +114,62 @@ public class GradeFileHandler {
             lines.add(grade.toTxtLine());
         }
 
+        boolean indexWasCurrent = isIndexCurrent();
         writeAllLinesRaw(lines);
+
+        synchronized (gradedStudentIds) {
+            if (indexWasCurrent) {
+                gradedStudentIds.add(grade.getStudentId().toLowerCase());
+                stampIndex();
+            }
+        }
+    }
+
+    // ---------- Graded students index ----------
+
+    // True if the student has any grade in the file (no file read when the index is current).
+    public boolean hasGrades(String studentId) {
+        studentId = safe(studentId);
+        if (studentId.isEmpty()) return false;
+
+        refreshIndexIfStale();
+        synchronized (gradedStudentIds) {
+            return gradedStudentIds.contains(studentId.toLowerCase());
+        }
+    }
+
+    // Snapshot of the (lower-case) ids of students that have at least one grade.
+    public Set<String> getStudentIdsWithGrades() {
+        refreshIndexIfStale();
+        synchronized (gradedStudentIds) {
+            return Collections.unmodifiableSet(new HashSet<String>(gradedStudentIds));
+        }
+    }
+
+    private void refreshIndexIfStale() {
+        if (!isIndexCurrent()) rebuildIndex();
+    }
+
+    private boolean isIndexCurrent() {
+        synchronized (gradedStudentIds) {
+            return indexedModified == file.lastModified() && indexedLength == file.length();
+        }
+    }
+
+    private void rebuildIndex() {
+        synchronized (gradedStudentIds) {
+            // stamp first: a write landing during the read makes the next check rebuild again
+            stampIndex();
+            gradedStudentIds.clear();
+            for (Grade g : readAll()) {
+                gradedStudentIds.add(g.getStudentId().toLowerCase());
+            }
+        }
+    }
+
+    private void stampIndex() {
+        indexedModified = file.lastModified();
+        indexedLength = file.length();
     }
 
     public List<Grade> getByStudent(String studentId) {
@@ -134,6 +201,22 @@ public class GradeFileHandler {
         return latest;
     }
 
+    // Latest attempt of every (student, course) in the file, one read (bulk version of latestByCourse).
+    public List<Grade> latestAttempts() {
+        Map<String, Grade> latest = new LinkedHashMap<String, Grade>();
+
+        for (Grade g : readAll()) {
+            // same matching as latestByCourse / same(): trimmed, case-insensitive
+            String key = safe(g.getStudentId()).toLowerCase(Locale.ROOT) + "|"
+                    + safe(g.getCourseId()).toLowerCase(Locale.ROOT);
+            Grade current = latest.get(key);
+            if (current == null || g.getAttempt() > current.getAttempt()) {
+                latest.put(key, g);
+            }
+        }
+        return new ArrayList<Grade>(latest.values());
+    }
+
     private int findCourseIndex(List<Grade> list, String courseId) {
         courseId = safe(courseId);
 
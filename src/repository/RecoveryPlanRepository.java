@@ -0,0 +1,454 @@
+package repository;
+
+import model.Milestone;
+import model.RecoveryPlan;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * RecoveryPlanRepository
+ * Recovery plans indexed by (studentId, courseId), stored as a snapshot + journal.
+ * - recovery_plans.txt     : snapshot, only ever replaced whole (temp file + atomic move)
+ * - recovery_plans.journal : every save appends the changes (plan + milestone deltas)
+ * - startup reads the snapshot and replays the journal; find() is a map lookup
+ * - once the journal is long it is folded into a new snapshot and cleared
+ * - if the files cannot be read, saves are refused (never rewrite from a partial load)
+ * - one shared instance per file (forFile): seq and the diff base live in memory,
+ *   so two instances writing the same journal would lose each other's saves
+ *
+ * Snapshot format (text fields escaped: \p = '|', \n, \r, \\ = '\'):
+ * SNAPSHOT|seq                       (last journal commit included)
+ * PLAN|studentId|courseId
+ * MILESTONE|title|deadline|completed
+ *
+ * Journal format (a save is applied only if its COMMIT line made it to disk):
+ * PLAN|studentId|courseId            (plan created)
+ * MS_ADD|studentId|courseId|title|deadline|completed
+ * MS_SET|studentId|courseId|index|title|deadline|completed
+ * MS_DEL|studentId|courseId|index
+ * COMMIT|seq|lines
+ */
+public class RecoveryPlanRepository {
+
+    // fold the journal into the snapshot after this many saves
+    private static final int COMPACT_AFTER_COMMITS = 200;
+
+    // canonical path -> the one repository for that file
+    private static final Map<String, RecoveryPlanRepository> INSTANCES = new HashMap<>();
+
+    private final File file;
+    private final File journal;
+
+    // "studentid|courseid" (lower-case) -> plan, in first-saved order
+    private final Map<String, RecoveryPlan> plans = new LinkedHashMap<>();
+    private long seq;               // last commit applied
+    private int journalCommits;     // commits in the journal file
+    private boolean loaded;
+    private String loadError;       // last load failed: read-only until reload()
+    private boolean compactPending; // stale snapshot / torn journal, cleaned up on next save
+
+    public static synchronized RecoveryPlanRepository forFile(String path) {
+        String k;
+        try {
+            k = new File(path).getCanonicalPath();
+        } catch (IOException e) {
+            k = new File(path).getAbsolutePath();
+        }
+        return INSTANCES.computeIfAbsent(k, x -> new RecoveryPlanRepository(path));
+    }
+
+    private RecoveryPlanRepository(String path) {
+        this.file = new File(path);
+        String base = path.endsWith(".txt") ? path.substring(0, path.length() - 4) : path;
+        this.journal = new File(base + ".journal");
+    }
+
+    // ---------- Public API ----------
+
+    // Copy of the saved plan, or null (edits are kept only after save()).
+    public synchronized RecoveryPlan find(String studentId, String courseId) {
+        ensureLoaded();
+        RecoveryPlan p = plans.get(key(studentId, courseId));
+        return (p == null) ? null : copy(p);
+    }
+
+    public synchronized boolean exists(String studentId, String courseId) {
+        ensureLoaded();
+        return plans.containsKey(key(studentId, courseId));
+    }
+
+    public synchronized List<RecoveryPlan> findAll() {
+        ensureLoaded();
+        List<RecoveryPlan> out = new ArrayList<>(plans.size());
+        for (RecoveryPlan p : plans.values()) out.add(copy(p));
+        return out;
+    }
+
+    public synchronized int size() {
+        ensureLoaded();
+        return plans.size();
+    }
+
+    // Journals only what changed in this plan.
+    public synchronized void save(RecoveryPlan plan) throws IOException {
+        List<RecoveryPlan> one = new ArrayList<>(1);
+        one.add(plan);
+        saveAll(one);
+    }
+
+    // All given plans as one journal commit (one write + sync).
+    public synchronized void saveAll(List<RecoveryPlan> batch) throws IOException {
+        ensureLoaded();
+        if (loadError != null) {
+            throw new IOException("Recovery plans could not be read (" + loadError + "), not saving");
+        }
+        if (batch == null || batch.isEmpty()) return;
+
+        // later copies of the same plan in the batch win
+        Map<String, RecoveryPlan> changed = new LinkedHashMap<>();
+        for (RecoveryPlan p : batch) {
+            if (p != null) changed.put(key(p.getStudentId(), p.getCourseId()), p);
+        }
+
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, RecoveryPlan> e : changed.entrySet()) {
+            diff(plans.get(e.getKey()), e.getValue(), lines);
+        }
+        if (lines.isEmpty()) return;   // nothing changed
+
+        long next = seq + 1;
+        StringBuilder sb = new StringBuilder();
+        for (String l : lines) sb.append(l).append('\n');
+        sb.append("COMMIT|").append(next).append('|').append(lines.size()).append('\n');
+
+        appendJournal(sb.toString());
+
+        seq = next;
+        journalCommits++;
+        for (Map.Entry<String, RecoveryPlan> e : changed.entrySet()) {
+            plans.put(e.getKey(), copy(e.getValue()));
+        }
+
+        if (compactPending || journalCommits >= COMPACT_AFTER_COMMITS) compact();
+    }
+
+    // Writes a new snapshot (temp file + atomic move), then clears the journal.
+    // Refused after a failed load: plans in memory may be incomplete.
+    public synchronized boolean compact() {
+        ensureLoaded();
+        if (loadError != null) {
+            System.out.println("Recovery plans not compacted, last read failed: " + loadError);
+            return false;
+        }
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) parent.mkdirs();
+
+        File tmp = new File(file.getPath() + ".tmp");
+        StringBuilder sb = new StringBuilder();
+        sb.append("SNAPSHOT|").append(seq).append('\n');
+        for (RecoveryPlan p : plans.values()) appendBlock(sb, p);
+
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        } catch (IOException e) {
+            System.out.println("Recovery plan save error: " + e.getMessage());
+            return false;
+        }
+
+        try {
+            Files.move(tmp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println("Recovery plan save error: " + e.getMessage());
+            return false;
+        }
+
+        // a crash before this line is harmless: replay skips commits <= SNAPSHOT seq
+        if (journal.exists() && !journal.delete()) {
+            System.out.println("Recovery plan journal could not be cleared: " + journal.getPath());
+            return false;
+        }
+        journalCommits = 0;
+        compactPending = false;
+        return true;
+    }
+
+    // Re-reads snapshot + journal on next access (e.g. after another program changed them).
+    public synchronized void reload() {
+        loaded = false;
+    }
+
+    // Why the last load failed, or null.
+    public synchronized String getLoadError() {
+        ensureLoaded();
+        return loadError;
+    }
+
+    // ---------- Loading ----------
+
+    private void ensureLoaded() {
+        if (loaded) return;
+
+        plans.clear();
+        seq = 0;
+        journalCommits = 0;
+        loadError = null;
+        compactPending = false;
+        loaded = true;
+
+        try {
+            boolean stale = readSnapshot();
+            boolean torn = replayJournal();
+
+            // file from before the journal (re-saved plans appended), or a save cut
+            // short by a crash at the end of the journal: the next save writes a clean
+            // snapshot (a load only to read never rewrites the files)
+            compactPending = stale || torn;
+        } catch (IOException e) {
+            loadError = e.getMessage();
+            System.out.println("Recovery plan read error: " + e.getMessage());
+        }
+    }
+
+    // true if the file holds replaced plan blocks
+    private boolean readSnapshot() throws IOException {
+        if (!file.exists()) return false;
+
+        int blocks = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            RecoveryPlan current = null;
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+
+                String[] parts = line.split("\\|", -1);
+                if ("SNAPSHOT".equals(parts[0]) && parts.length >= 2) {
+                    seq = parseLong(parts[1], 0);
+                } else if ("PLAN".equals(parts[0]) && parts.length >= 3) {
+                    current = new RecoveryPlan(text(parts[1]), text(parts[2]));
+                    // later block wins (a re-saved plan)
+                    plans.put(key(current.getStudentId(), current.getCourseId()), current);
+                    blocks++;
+                } else if ("MILESTONE".equals(parts[0]) && parts.length >= 4 && current != null) {
+                    current.addMilestone(milestone(parts[1], parts[2], parts[3]));
+                }
+            }
+        }
+        return blocks > plans.size();
+    }
+
+    // true if the journal ends with an unfinished save
+    private boolean replayJournal() throws IOException {
+        if (!journal.exists()) return false;
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(journal), StandardCharsets.UTF_8))) {
+            List<String[]> pending = new ArrayList<>();
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) continue;
+
+                String[] parts = line.split("\\|", -1);
+                if (!"COMMIT".equals(parts[0])) {
+                    pending.add(parts);
+                    continue;
+                }
+
+                long commit = (parts.length >= 3) ? parseLong(parts[1], -1) : -1;
+                int count = (parts.length >= 3) ? (int) parseLong(parts[2], -1) : -1;
+
+                // skip commits already in the snapshot; lines before the last "count"
+                // are left over from a save a crash cut short
+                if (commit > seq && count >= 0 && count <= pending.size()) {
+                    for (int i = pending.size() - count; i < pending.size(); i++) apply(pending.get(i));
+                    seq = commit;
+                }
+                journalCommits++;
+                pending.clear();
+            }
+            return !pending.isEmpty();
+        }
+    }
+
+    private void apply(String[] d) {
+        if (d.length < 3) return;
+        String k = key(text(d[1]), text(d[2]));
+        RecoveryPlan p = plans.get(k);
+
+        switch (d[0]) {
+            case "PLAN":
+                plans.put(k, new RecoveryPlan(text(d[1]), text(d[2])));
+                break;
+            case "MS_ADD":
+                if (p != null && d.length >= 6) p.addMilestone(milestone(d[3], d[4], d[5]));
+                break;
+            case "MS_SET":
+                if (p != null && d.length >= 7) {
+                    int i = (int) parseLong(d[3], -1);
+                    if (i < 0 || i >= p.getMilestones().size()) break;
+                    Milestone m = p.getMilestones().get(i);
+                    m.setTitle(text(d[4]));
+                    m.setDeadline(text(d[5]));
+                    p.updateMilestoneStatus(i, "true".equalsIgnoreCase(safe(d[6])));
+                }
+                break;
+            case "MS_DEL":
+                if (p != null && d.length >= 4) p.removeMilestone((int) parseLong(d[3], -1));
+                break;
+            default:
+                // unknown record type: skip
+        }
+    }
+
+    // ---------- Writing ----------
+
+    // journal lines turning "before" (null = new plan) into "after"
+    private static void diff(RecoveryPlan before, RecoveryPlan after, List<String> out) {
+        String id = field(after.getStudentId()) + "|" + field(after.getCourseId());
+        List<Milestone> now = after.getMilestones();
+
+        if (before == null) {
+            out.add("PLAN|" + id);
+            for (Milestone m : now) out.add("MS_ADD|" + id + "|" + milestoneFields(m));
+            return;
+        }
+
+        List<Milestone> old = before.getMilestones();
+        int common = Math.min(old.size(), now.size());
+
+        for (int i = 0; i < common; i++) {
+            if (!sameMilestone(old.get(i), now.get(i))) {
+                out.add("MS_SET|" + id + "|" + i + "|" + milestoneFields(now.get(i)));
+            }
+        }
+        for (int i = common; i < now.size(); i++) {
+            out.add("MS_ADD|" + id + "|" + milestoneFields(now.get(i)));
+        }
+        // from the end, so indexes stay valid during replay
+        for (int i = old.size() - 1; i >= now.size(); i--) {
+            out.add("MS_DEL|" + id + "|" + i);
+        }
+    }
+
+    private void appendJournal(String text) throws IOException {
+        File parent = journal.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) parent.mkdirs();
+
+        try (FileOutputStream out = new FileOutputStream(journal, true)) {
+            // after a crash mid-line, start on a fresh line
+            if (!endsWithNewline(journal)) out.write('\n');
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+    }
+
+    private static boolean endsWithNewline(File f) throws IOException {
+        if (!f.exists() || f.length() == 0) return true;
+        try (RandomAccessFile raf = new RandomAccessFile(f, "r")) {
+            raf.seek(raf.length() - 1);
+            return raf.read() == '\n';
+        }
+    }
+
+    private static void appendBlock(StringBuilder sb, RecoveryPlan plan) {
+        sb.append("PLAN|").append(field(plan.getStudentId())).append('|').append(field(plan.getCourseId())).append('\n');
+        for (Milestone m : plan.getMilestones()) {
+            sb.append("MILESTONE|").append(milestoneFields(m)).append('\n');
+        }
+    }
+
+    // ---------- Helpers ----------
+
+    private static String milestoneFields(Milestone m) {
+        return field(m.getTitle()) + "|" + field(m.getDeadline()) + "|" + m.isCompleted();
+    }
+
+    private static Milestone milestone(String title, String deadline, String completed) {
+        Milestone ms = new Milestone(text(title), text(deadline));
+        ms.setCompleted("true".equalsIgnoreCase(safe(completed)));
+        return ms;
+    }
+
+    private static boolean sameMilestone(Milestone a, Milestone b) {
+        return a.isCompleted() == b.isCompleted()
+                && field(a.getTitle()).equals(field(b.getTitle()))
+                && field(a.getDeadline()).equals(field(b.getDeadline()));
+    }
+
+    private static RecoveryPlan copy(RecoveryPlan p) {
+        RecoveryPlan c = new RecoveryPlan(p.getStudentId(), p.getCourseId());
+        for (Milestone m : p.getMilestones()) {
+            Milestone ms = new Milestone(m.getTitle(), m.getDeadline());
+            ms.setCompleted(m.isCompleted());
+            c.addMilestone(ms);
+        }
+        return c;
+    }
+
+    // "|" would break the line format
+    // '|' and line breaks are escaped (same scheme as UserRepository), so titles round-trip
+    private static String field(String s) {
+        String v = safe(s);
+        StringBuilder sb = new StringBuilder(v.length() + 8);
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            switch (c) {
+                case '\\': sb.append("\\\\"); break;
+                case '|':  sb.append("\\p"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                default:   sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String text(String s) {
+        String v = safe(s);
+        StringBuilder sb = new StringBuilder(v.length());
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            if (c == '\\' && i + 1 < v.length()) {
+                char n = v.charAt(++i);
+                if (n == 'p') sb.append('|');
+                else if (n == 'n') sb.append('\n');
+                else if (n == 'r') sb.append('\r');
+                else sb.append(n);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static long parseLong(String s, long def) {
+        try {
+            return Long.parseLong(safe(s));
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+
+    private static String key(String studentId, String courseId) {
+        return safe(studentId).toLowerCase(Locale.ROOT) + "|" + safe(courseId).toLowerCase(Locale.ROOT);
+    }
+
+    private static String safe(String s) {
+        return (s == null) ? "" : s.trim();
+    }
+}
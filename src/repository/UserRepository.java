@@ -0,0 +1,263 @@
+package repository;
+
+import model.Admin;
+import model.User;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * UserRepository
+ * Append-only user store (replaces the serialized List<User> in users.dat).
+ * - save(user) appends one record; the last record for a username wins
+ * - loadAll() replays the file once at startup
+ * - when old records pile up the file is compacted (temp file + atomic move)
+ * - an existing users.dat is migrated on first load; it holds plaintext passwords, so it
+ *   is deleted (no backup) once the hashed users.txt is written (deleteLegacyFiles)
+ *
+ * File format (one user per line, fields escaped):
+ * Username|Password|Role|Email|Active|Type
+ * Type = ADMIN (model.Admin) or USER
+ */
+public class UserRepository {
+
+    public static final String HEADER = "Username|Password|Role|Email|Active|Type";
+
+    // compact once the file holds this many records more than there are users
+    private static final int COMPACT_SLACK = 64;
+
+    private final File file;
+    private final File legacyFile;
+
+    // latest record per lowercase username, in first-seen order
+    private final Map<String, User> latest = new LinkedHashMap<>();
+    private int records;
+
+    public UserRepository(String path, String legacySerializedPath) {
+        this.file = new File(path);
+        this.legacyFile = (legacySerializedPath == null) ? null : new File(legacySerializedPath);
+    }
+
+    // ---------- Public API ----------
+
+    public synchronized List<User> loadAll() {
+        latest.clear();
+        records = 0;
+
+        if (!file.exists() && legacyFile != null && legacyFile.exists()) {
+            migrateLegacy();
+        }
+        if (!file.exists()) return new ArrayList<>();
+
+        try (BufferedReader br = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.trim().isEmpty() || line.equals(HEADER)) continue;
+
+                // a torn last line (crash mid-append) is skipped
+                User u = parseLine(line);
+                if (u == null) continue;
+
+                latest.put(key(u.getUsername()), u);
+                records++;
+            }
+        } catch (IOException e) {
+            System.err.println("Load users error: " + e.getMessage());
+        }
+
+        return new ArrayList<>(latest.values());
+    }
+
+    // Writes only this user's record.
+    public synchronized boolean save(User user) {
+        if (user == null || clean(user.getUsername()).isEmpty()) return false;
+
+        boolean newFile = !file.exists() || file.length() == 0;
+        try (Writer w = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8))) {
+            if (newFile) w.write(HEADER + "\n");
+            // a torn last line (crash mid-append) must not swallow this record
+            else if (!endsWithNewline(file)) w.write("\n");
+            w.write(toLine(user) + "\n");
+        } catch (IOException e) {
+            System.err.println("Save user error: " + e.getMessage());
+            return false;
+        }
+
+        latest.put(key(user.getUsername()), user);
+        records++;
+
+        if (records > latest.size() + COMPACT_SLACK) compact();
+        return true;
+    }
+
+    // Replaces every record at once (e.g. after a bulk change such as password migration).
+    public synchronized boolean saveAll(List<User> users) {
+        Map<String, User> unique = new LinkedHashMap<>();
+        for (User u : users) {
+            if (u != null && !clean(u.getUsername()).isEmpty()) unique.put(key(u.getUsername()), u);
+        }
+
+        if (!writeSnapshot(new ArrayList<>(unique.values()))) return false;
+        latest.clear();
+        latest.putAll(unique);
+        return true;
+    }
+
+    // Rewrites the file with one record per user.
+    public synchronized boolean compact() {
+        return writeSnapshot(new ArrayList<>(latest.values()));
+    }
+
+    public synchronized int getRecordCount() {
+        return records;
+    }
+
+    // ---------- Migration ----------
+
+    @SuppressWarnings("unchecked")
+    private void migrateLegacy() {
+        List<User> legacy;
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(legacyFile))) {
+            Object obj = ois.readObject();
+            if (!(obj instanceof List)) return;
+            legacy = (List<User>) obj;
+        } catch (Exception e) {
+            System.err.println("Load users error: " + e.getMessage());
+            return;
+        }
+
+        // same first-match-wins rule as the old linear lookup
+        Map<String, User> unique = new LinkedHashMap<>();
+        for (User u : legacy) {
+            if (u != null) unique.putIfAbsent(key(u.getUsername()), u);
+        }
+
+        // users.dat stays until the caller has hashed the passwords (deleteLegacyFiles)
+        writeSnapshot(new ArrayList<>(unique.values()));
+    }
+
+    // Removes users.dat and the users.dat.migrated copy older versions kept (plaintext passwords).
+    public synchronized void deleteLegacyFiles() {
+        if (legacyFile == null) return;
+
+        for (File f : new File[]{legacyFile, new File(legacyFile.getPath() + ".migrated")}) {
+            if (f.exists() && !f.delete()) {
+                System.err.println("Could not delete old user file " + f.getPath());
+            }
+        }
+    }
+
+    // ---------- Internal ----------
+
+    private boolean writeSnapshot(List<User> users) {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) parent.mkdirs();
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (Writer w = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+            w.write(HEADER + "\n");
+            for (User u : users) {
+                w.write(toLine(u) + "\n");
+            }
+        } catch (IOException e) {
+            System.err.println("Save users error: " + e.getMessage());
+            return false;
+        }
+
+        try {
+            Files.move(tmp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Save users error: " + e.getMessage());
+            return false;
+        }
+
+        records = users.size();
+        return true;
+    }
+
+    private String toLine(User u) {
+        return escape(u.getUsername()) + "|" + escape(u.getPassword()) + "|" + escape(u.getRole()) + "|"
+                + escape(u.getEmail()) + "|" + u.isActive() + "|" + ((u instanceof Admin) ? "ADMIN" : "USER");
+    }
+
+    private User parseLine(String line) {
+        String[] p = line.split("\\|", -1);
+        if (p.length < 6) return null;
+
+        String username = unescape(p[0]);
+        if (clean(username).isEmpty()) return null;
+
+        // a record torn inside Active/Type must not load as a disabled plain user
+        String active = p[4].trim();
+        String type = p[5].trim();
+        if (!active.equals("true") && !active.equals("false")) return null;
+        if (!type.equals("ADMIN") && !type.equals("USER")) return null;
+
+        User u = type.equals("ADMIN") ? new Admin() : new User();
+        u.setUsername(username);
+        u.setPassword(unescape(p[1]));
+        u.setRole(unescape(p[2]));
+        u.setEmail(unescape(p[3]));
+        u.setActive(active.equals("true"));
+        return u;
+    }
+
+    private static boolean endsWithNewline(File f) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(f, "r")) {
+            raf.seek(raf.length() - 1);
+            return raf.read() == '\n';
+        }
+    }
+
+    private static String escape(String s) {
+        if (s == null) return "";
+        StringBuilder sb = new StringBuilder(s.length() + 8);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\\': sb.append("\\\\"); break;
+                case '|':  sb.append("\\p"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                default:   sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String unescape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char n = s.charAt(++i);
+                if (n == 'p') sb.append('|');
+                else if (n == 'n') sb.append('\n');
+                else if (n == 'r') sb.append('\r');
+                else sb.append(n);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private String key(String username) {
+        return clean(username).toLowerCase(Locale.ROOT);
+    }
+
+    private String clean(String s) {
+        return (s == null) ? "" : s.trim();
+    }
+}
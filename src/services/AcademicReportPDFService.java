@@ -6,12 +6,18 @@ import com.itextpdf.text.pdf.*;
 import model.Course;
 import model.Grade;
 import model.Student;
+import model.Transcript;
 import repository.CourseRepository;
 import repository.GradeFileHandler;
 import repository.StudentRepository;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -20,7 +26,8 @@ import java.util.List;
 
 /**
  * AcademicReportPDFService
- * Generates 1 student's academic report as a PDF.
+ * Generates 1 student's academic report as a PDF
+ * (or lightweight HTML / CSV for the student portal feed).
  */
 public class AcademicReportPDFService {
 
@@ -31,25 +38,123 @@ public class AcademicReportPDFService {
     private final CourseRepository courseRepo;
     private final GradeFileHandler gradeFile;
 
+    private PdfProfile pdfProfile = PdfProfile.STANDARD;
+
+    // shared by every instance so a whole run can be queried / dumped in one place
+    private static final ReportMetrics METRICS = new ReportMetrics();
+
     public AcademicReportPDFService() {
         studentRepo = new StudentRepository();
         courseRepo = new CourseRepository();
         gradeFile = new GradeFileHandler(GRADES_PATH);
     }
 
+    /**
+     * PDF output profile.
+     * STANDARD = iText defaults (what older reports used).
+     * COMPACT  = full compression: max deflate level, compressed cross-reference
+     *            stream and object streams (PDF 1.5). Costs a little CPU, much smaller files.
+     * Fonts are the built-in Helvetica (standard 14, never embedded), so there is no
+     * font program to subset in either profile.
+     */
+    public enum PdfProfile { STANDARD, COMPACT }
+
+    public static ReportMetrics getMetrics() {
+        return METRICS;
+    }
+
+    public PdfProfile getPdfProfile() {
+        return pdfProfile;
+    }
+
+    public void setPdfProfile(PdfProfile pdfProfile) {
+        this.pdfProfile = (pdfProfile == null) ? PdfProfile.STANDARD : pdfProfile;
+    }
+
+    // Output format, selectable per request (HTML/CSV are for the student portal feed)
+    public enum Format {
+        PDF("pdf"), HTML("html"), CSV("csv");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
     public static class ReportResult {
-        public final String pdfPath;
+        public final String pdfPath;   // output file path (any format)
         public final double cgpa;
         public final int totalCredits;
+        public final Format format;
 
         public ReportResult(String pdfPath, double cgpa, int totalCredits) {
+            this(pdfPath, cgpa, totalCredits, Format.PDF);
+        }
+
+        public ReportResult(String pdfPath, double cgpa, int totalCredits, Format format) {
             this.pdfPath = pdfPath;
             this.cgpa = cgpa;
             this.totalCredits = totalCredits;
+            this.format = format;
         }
     }
 
     public ReportResult generateAcademicReportPdf(String studentId, String semesterLabel) throws Exception {
+        return generateAcademicReport(studentId, semesterLabel, Format.PDF);
+    }
+
+    public ReportResult generateAcademicReport(String studentId, String semesterLabel, Format format) throws Exception {
+        if (format == null) format = Format.PDF;
+
+        long start = System.nanoTime();
+        try {
+            // LOAD: student + grades + courses
+            Transcript transcript = buildTranscript(studentId, semesterLabel);
+            long loaded = System.nanoTime();
+            METRICS.record(ReportMetrics.Stage.LOAD, loaded - start);
+
+            // LAYOUT: render in memory so disk time is measured separately
+            ByteArrayOutputStream rendered = new ByteArrayOutputStream(8192);
+            switch (format) {
+                case HTML:
+                case CSV:
+                    Writer w = new OutputStreamWriter(rendered, StandardCharsets.UTF_8);
+                    if (format == Format.HTML) TranscriptWriter.writeHtml(transcript, w);
+                    else TranscriptWriter.writeCsv(transcript, w);
+                    w.flush();
+                    break;
+                default:
+                    renderPdf(transcript, rendered, pdfProfile);
+                    break;
+            }
+            long laidOut = System.nanoTime();
+            METRICS.record(ReportMetrics.Stage.LAYOUT, laidOut - loaded);
+
+            // WRITE
+            File outFile = buildOutputFile(transcript.getStudent().getStudentId(), transcript.getSemester(), format);
+            try (OutputStream out = new FileOutputStream(outFile)) {
+                rendered.writeTo(out);
+            }
+            long written = System.nanoTime();
+            METRICS.record(ReportMetrics.Stage.WRITE, written - laidOut);
+            METRICS.record(ReportMetrics.Stage.TOTAL, written - start);
+            METRICS.reportGenerated(rendered.size());
+
+            return new ReportResult(outFile.getAbsolutePath(), transcript.getCgpa(), transcript.getTotalCredits(), format);
+
+        } catch (Exception e) {
+            METRICS.reportFailed();
+            throw e;
+        }
+    }
+
+    // Builds the renderer-agnostic transcript (rows + CGPA totals) for one student.
+    public Transcript buildTranscript(String studentId, String semesterLabel) {
         studentId = safe(studentId);
         String sem = safe(semesterLabel);
 
@@ -68,10 +173,8 @@ public class AcademicReportPDFService {
             throw new IllegalStateException("No grades found for this student. Report cannot be generated.");
         }
 
-        // build report rows + CGPA totals
-        List<Row> rows = new ArrayList<Row>();
-        double totalPoints = 0.0;
-        int totalCredits = 0;
+        // build report rows
+        List<Transcript.Row> rows = new ArrayList<Transcript.Row>();
 
         for (Grade g : latest) {
             if (g == null) continue;
@@ -88,18 +191,13 @@ public class AcademicReportPDFService {
             int credits = c.getCredits();
             if (credits <= 0) continue;
 
-            double gp = g.getGradePoint();
-
-            rows.add(new Row(
+            rows.add(new Transcript.Row(
                     c.getCourseId(),
                     c.getCourseName(),
                     credits,
                     g.getLetter(),
-                    gp
+                    g.getGradePoint()
             ));
-
-            totalCredits += credits;
-            totalPoints += (gp * credits);
         }
 
         if (rows.isEmpty()) {
@@ -107,31 +205,33 @@ public class AcademicReportPDFService {
         }
 
         // sort by course code
-        Collections.sort(rows, new Comparator<Row>() {
+        Collections.sort(rows, new Comparator<Transcript.Row>() {
             @Override
-            public int compare(Row a, Row b) {
-                return safe(a.courseCode).compareToIgnoreCase(safe(b.courseCode));
+            public int compare(Transcript.Row a, Transcript.Row b) {
+                return safe(a.getCourseCode()).compareToIgnoreCase(safe(b.getCourseCode()));
             }
         });
 
-        double cgpa = (totalCredits == 0) ? 0.0 : (totalPoints / totalCredits);
-        DecimalFormat df = new DecimalFormat("0.00");
-
-        File outFile = buildOutputFile(student.getStudentId(), sem);
-
-        // create PDF
-        writePdf(outFile, student, sem, rows, cgpa, df);
-
-        return new ReportResult(outFile.getAbsolutePath(), cgpa, totalCredits);
+        return new Transcript(student, sem, rows);
     }
 
     // ---------------- PDF helpers ----------------
 
-    private void writePdf(File outFile, Student student, String sem, List<Row> rows,
-                          double cgpa, DecimalFormat df) throws Exception {
+    // Renders the transcript as PDF into the stream (stream is left open for the caller).
+    public void renderPdf(Transcript transcript, OutputStream out, PdfProfile profile) throws Exception {
+        Student student = transcript.getStudent();
+        DecimalFormat df = new DecimalFormat("0.00");
 
         Document doc = new Document(PageSize.A4, 36, 36, 36, 36);
-        PdfWriter.getInstance(doc, new FileOutputStream(outFile));
+        PdfWriter writer = PdfWriter.getInstance(doc, out);
+        writer.setCloseStream(false);
+
+        if (profile == PdfProfile.COMPACT) {
+            // must be set before open(); setFullCompression also switches to PDF 1.5
+            writer.setCompressionLevel(PdfStream.BEST_COMPRESSION);
+            writer.setFullCompression();
+        }
+
         doc.open();
 
         Font titleFont = new Font(Font.FontFamily.HELVETICA, 16, Font.BOLD);
@@ -147,7 +247,7 @@ public class AcademicReportPDFService {
         doc.add(new Paragraph("Year of Study: " + student.getYear(), normalFont));
         doc.add(Chunk.NEWLINE);
 
-        doc.add(new Paragraph("Semester: " + (sem.isEmpty() ? "(All)" : sem), boldFont));
+        doc.add(new Paragraph("Semester: " + transcript.getSemesterLabel(), boldFont));
         doc.add(Chunk.NEWLINE);
 
         PdfPTable table = new PdfPTable(5);
@@ -161,18 +261,18 @@ public class AcademicReportPDFService {
         addHeaderCell(table, "Grade");
         addHeaderCell(table, "Grade Point (4.0)");
 
-        for (Row r : rows) {
-            addBodyCell(table, safe(r.courseCode));
-            addBodyCell(table, safe(r.courseTitle));
-            addBodyCell(table, String.valueOf(r.creditHours));
-            addBodyCell(table, safe(r.gradeLetter));
-            addBodyCell(table, df.format(r.gradePoint));
+        for (Transcript.Row r : transcript.getRows()) {
+            addBodyCell(table, safe(r.getCourseCode()));
+            addBodyCell(table, safe(r.getCourseTitle()));
+            addBodyCell(table, String.valueOf(r.getCreditHours()));
+            addBodyCell(table, safe(r.getGradeLetter()));
+            addBodyCell(table, df.format(r.getGradePoint()));
         }
 
         doc.add(table);
         doc.add(Chunk.NEWLINE);
 
-        doc.add(new Paragraph("Cumulative GPA (CGPA): " + df.format(cgpa), boldFont));
+        doc.add(new Paragraph("Cumulative GPA (CGPA): " + df.format(transcript.getCgpa()), boldFont));
         doc.add(Chunk.NEWLINE);
 
         doc.add(new Paragraph("Recommendations:", boldFont));
@@ -182,12 +282,12 @@ public class AcademicReportPDFService {
         doc.close();
     }
 
-    private File buildOutputFile(String studentId, String sem) {
+    private File buildOutputFile(String studentId, String sem, Format format) {
         File outDir = new File(REPORTS_FOLDER);
         if (!outDir.exists()) outDir.mkdirs();
 
         String semPart = sem.isEmpty() ? "AllSemesters" : sem.replaceAll("\\s+", "");
-        String filename = studentId + "_" + semPart + "_AcademicReport.pdf";
+        String filename = studentId + "_" + semPart + "_AcademicReport." + format.getExtension();
         return new File(outDir, filename);
     }
 
@@ -209,20 +309,4 @@ public class AcademicReportPDFService {
     private static String safe(String s) {
         return (s == null) ? "" : s.trim();
     }
-
-    private static class Row {
-        final String courseCode;
-        final String courseTitle;
-        final int creditHours;
-        final String gradeLetter;
-        final double gradePoint;
-
-        Row(String courseCode, String courseTitle, int creditHours, String gradeLetter, double gradePoint) {
-            this.courseCode = courseCode;
-            this.courseTitle = courseTitle;
-            this.creditHours = creditHours;
-            this.gradeLetter = gradeLetter;
-            this.gradePoint = gradePoint;
-        }
-    }
 }
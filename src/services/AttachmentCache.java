@@ -0,0 +1,155 @@
+package services;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.InternetHeaders;
+import javax.mail.internet.MimeBodyPart;
+import javax.mail.internet.MimeUtility;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * AttachmentCache
+ * Keeps the base64-encoded bytes of recently sent attachments, so the same
+ * file (e.g. a cohort summary PDF) going to many recipients is read and
+ * encoded once.
+ *
+ * Entries are keyed by path + last-modified + size (an edited file is a new entry),
+ * and evicted least-recently-used once the total encoded size passes the limit.
+ * Each message gets its own small MimeBodyPart over the shared bytes
+ * (a body part can only belong to one message).
+ */
+public class AttachmentCache {
+
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    private final long maxBytes;
+    private long usedBytes;
+
+    // access-ordered = LRU iteration order
+    private final LinkedHashMap<String, Encoded> entries = new LinkedHashMap<String, Encoded>(16, 0.75f, true);
+
+    private long hits;
+    private long misses;
+
+    public AttachmentCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    public AttachmentCache(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+    }
+
+    // Body part for the file, encoded once and shared while the file is unchanged.
+    public MimeBodyPart bodyPartFor(File file) throws IOException, MessagingException {
+        String key = keyFor(file);
+
+        Encoded enc;
+        synchronized (this) {
+            enc = entries.get(key);
+            if (enc != null) hits++;
+            else misses++;
+        }
+
+        if (enc == null) {
+            enc = encode(file);
+            store(key, enc);
+        }
+
+        // fresh headers per part; the encoded bytes are shared (never modified)
+        InternetHeaders headers = new InternetHeaders();
+        headers.setHeader("Content-Type", enc.contentType);
+        headers.setHeader("Content-Transfer-Encoding", "base64");
+        headers.setHeader("Content-Disposition", enc.disposition);
+        return new MimeBodyPart(headers, enc.base64);
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    // ---------------- Internal ----------------
+
+    private String keyFor(File file) {
+        return file.getAbsolutePath() + "|" + file.lastModified() + "|" + file.length();
+    }
+
+    private synchronized void store(String key, Encoded enc) {
+        // too big to ever fit: don't flush everything else out for it
+        if (enc.base64.length > maxBytes) return;
+
+        Encoded old = entries.put(key, enc);
+        if (old != null) usedBytes -= old.base64.length;
+        usedBytes += enc.base64.length;
+
+        Iterator<Map.Entry<String, Encoded>> it = entries.entrySet().iterator();
+        while (usedBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Encoded> eldest = it.next();
+            if (eldest.getKey().equals(key)) continue;
+            usedBytes -= eldest.getValue().base64.length;
+            it.remove();
+        }
+    }
+
+    private Encoded encode(File file) throws IOException, MessagingException {
+        byte[] raw = Files.readAllBytes(file.toPath());
+
+        // base64 is ~4/3 of the raw size plus line breaks
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(raw.length * 4 / 3 + raw.length / 38 + 16);
+        try (OutputStream b64 = MimeUtility.encode(bos, "base64")) {
+            b64.write(raw);
+        }
+
+        String name = file.getName();
+        String type = contentTypeFor(name);
+        String encodedName = MimeUtility.encodeText(name);
+
+        return new Encoded(bos.toByteArray(),
+                type + "; name=\"" + encodedName + "\"",
+                "attachment; filename=\"" + encodedName + "\"");
+    }
+
+    private String contentTypeFor(String name) {
+        String n = name.toLowerCase();
+        if (n.endsWith(".pdf")) return "application/pdf";
+        if (n.endsWith(".html") || n.endsWith(".htm")) return "text/html";
+        if (n.endsWith(".csv")) return "text/csv";
+        if (n.endsWith(".txt")) return "text/plain";
+        return "application/octet-stream";
+    }
+
+    private static class Encoded {
+        final byte[] base64;
+        final String contentType;
+        final String disposition;
+
+        Encoded(byte[] base64, String contentType, String disposition) {
+            this.base64 = base64;
+            this.contentType = contentType;
+            this.disposition = disposition;
+        }
+    }
+}
@@ -0,0 +1,352 @@
+package services;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * AuthLog
+ * Fixed-width binary auth log file.
+ *
+ * Layout:
+ * - 16 byte header: magic "CRSAUTH1" (long), version (int), record size (int)
+ * - records of RECORD_SIZE bytes, oldest first, timestamps never decreasing:
+ *   timestamp (long) | event length (byte) + 23 bytes UTF-8 | username length (byte) + 63 bytes UTF-8
+ *
+ * Record i starts at HEADER_SIZE + i * RECORD_SIZE, so the last N entries are one
+ * read at the end of the file and a time range is found by binary search on timestamps.
+ * A file in the old variable-length format (long + 3x writeUTF) is converted on open.
+ */
+public class AuthLog {
+
+    public static final int RECORD_SIZE = 96;
+    static final int HEADER_SIZE = 16;
+
+    private static final long MAGIC = 0x4352534155544831L; // "CRSAUTH1"
+    private static final int VERSION = 1;
+
+    private static final int EVENT_BYTES = 23;
+    private static final int USERNAME_BYTES = 63;
+
+    // field offsets inside a record (length byte first, then the bytes)
+    static final int EVENT_OFFSET = 8;
+    static final int USERNAME_OFFSET = EVENT_OFFSET + 1 + EVENT_BYTES;
+
+    // records read per I/O call when scanning a range
+    private static final int SCAN_BLOCK = 256;
+
+    static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    // One log record
+    public static class Entry {
+        public final long timestamp;
+        public final String username;
+        public final String event;
+
+        public Entry(long timestamp, String username, String event) {
+            this.timestamp = timestamp;
+            this.username = (username == null) ? "" : username;
+            this.event = (event == null) ? "" : event;
+        }
+
+        // "yyyy-MM-dd HH:mm:ss | username | EVENT" (same text the log viewer always showed)
+        @Override
+        public String toString() {
+            return DATE_FORMAT.format(Instant.ofEpochMilli(timestamp)) + " | " + username + " | " + event;
+        }
+    }
+
+    /**
+     * Receives raw records from scan(): no Entry or String is created per record.
+     * The bytes are only valid during the call (the buffer is reused).
+     */
+    public interface RecordVisitor {
+        void visit(long timestamp, byte[] block, int offset);
+    }
+
+    private final File file;
+
+    public AuthLog(String path) {
+        this.file = new File(path);
+        migrateLegacy();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    // complete records only (a half-written last record is ignored)
+    public long getRecordCount() {
+        long len = file.length();
+        return (len <= HEADER_SIZE) ? 0 : (len - HEADER_SIZE) / RECORD_SIZE;
+    }
+
+    // ---------------- Queries ----------------
+
+    public List<Entry> readAll() {
+        return readRange(0, getRecordCount());
+    }
+
+    // Last n entries, oldest first.
+    public List<Entry> tail(int n) {
+        long count = getRecordCount();
+        long from = Math.max(0, count - Math.max(0, n));
+        return readRange(from, count);
+    }
+
+    // Entries with fromMillis <= timestamp < toMillis, oldest first.
+    public List<Entry> range(long fromMillis, long toMillis) {
+        if (toMillis <= fromMillis || !file.exists()) return new ArrayList<>();
+
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long count = getRecordCount();
+            long start = lowerBound(ch, count, fromMillis);
+            long end = lowerBound(ch, count, toMillis);
+            return read(ch, start, end);
+        } catch (IOException e) {
+            System.err.println("Read log error: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    // Streams records with fromMillis <= timestamp < toMillis to the visitor, oldest first.
+    public void scan(long fromMillis, long toMillis, RecordVisitor visitor) {
+        if (toMillis <= fromMillis || !file.exists()) return;
+
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long count = getRecordCount();
+            long start = lowerBound(ch, count, fromMillis);
+            long end = lowerBound(ch, count, toMillis);
+
+            byte[] block = new byte[SCAN_BLOCK * RECORD_SIZE];
+            ByteBuffer buf = ByteBuffer.wrap(block);
+
+            for (long i = start; i < end; ) {
+                int n = (int) Math.min(SCAN_BLOCK, end - i);
+                buf.clear().limit(n * RECORD_SIZE);
+                readFully(ch, buf, HEADER_SIZE + i * RECORD_SIZE);
+
+                for (int k = 0; k < n; k++) {
+                    int off = k * RECORD_SIZE;
+                    visitor.visit(buf.getLong(off), block, off);
+                }
+                i += n;
+            }
+        } catch (IOException e) {
+            System.err.println("Read log error: " + e.getMessage());
+        }
+    }
+
+    // Timestamp of the first / last record, -1 if empty.
+    public long getFirstTimestamp() {
+        return timestampOf(0);
+    }
+
+    public long getLastTimestamp() {
+        return timestampOf(getRecordCount() - 1);
+    }
+
+    // ---------------- Encoding ----------------
+
+    static ByteBuffer header() {
+        ByteBuffer b = ByteBuffer.allocate(HEADER_SIZE);
+        b.putLong(MAGIC).putInt(VERSION).putInt(RECORD_SIZE);
+        b.flip();
+        return b;
+    }
+
+    static void encode(Entry e, ByteBuffer out) {
+        out.putLong(e.timestamp);
+        putString(out, e.event, EVENT_BYTES);
+        putString(out, e.username, USERNAME_BYTES);
+    }
+
+    static Entry decode(ByteBuffer in) {
+        long ts = in.getLong();
+        String event = getString(in, EVENT_BYTES);
+        String username = getString(in, USERNAME_BYTES);
+        return new Entry(ts, username, event);
+    }
+
+    // length byte + bytes, zero padded; long values are cut at a character boundary
+    private static void putString(ByteBuffer out, String s, int max) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        int len = Math.min(bytes.length, max);
+        while (len > 0 && len < bytes.length && (bytes[len] & 0xC0) == 0x80) len--;
+
+        out.put((byte) len);
+        out.put(bytes, 0, len);
+        for (int i = len; i < max; i++) out.put((byte) 0);
+    }
+
+    private static String getString(ByteBuffer in, int max) {
+        int len = Math.min(in.get() & 0xFF, max);
+        byte[] bytes = new byte[max];
+        in.get(bytes);
+        return new String(bytes, 0, len, StandardCharsets.UTF_8);
+    }
+
+    // ---------------- Internal ----------------
+
+    private List<Entry> readRange(long from, long to) {
+        if (to <= from || !file.exists()) return new ArrayList<>();
+
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return read(ch, from, to);
+        } catch (IOException e) {
+            System.err.println("Read log error: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    // records [from, to)
+    private List<Entry> read(FileChannel ch, long from, long to) throws IOException {
+        List<Entry> out = new ArrayList<>((int) Math.min(Math.max(0, to - from), 1 << 16));
+        ByteBuffer buf = ByteBuffer.allocate(SCAN_BLOCK * RECORD_SIZE);
+
+        long i = from;
+        while (i < to) {
+            int n = (int) Math.min(SCAN_BLOCK, to - i);
+            buf.clear().limit(n * RECORD_SIZE);
+            readFully(ch, buf, HEADER_SIZE + i * RECORD_SIZE);
+            buf.flip();
+
+            for (int k = 0; k < n; k++) out.add(decode(buf));
+            i += n;
+        }
+        return out;
+    }
+
+    // first record index with timestamp >= t (count if none)
+    private long lowerBound(FileChannel ch, long count, long t) throws IOException {
+        ByteBuffer ts = ByteBuffer.allocate(8);
+        long lo = 0;
+        long hi = count;
+
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            ts.clear();
+            readFully(ch, ts, HEADER_SIZE + mid * RECORD_SIZE);
+            ts.flip();
+
+            if (ts.getLong() < t) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private long timestampOf(long index) {
+        if (index < 0 || index >= getRecordCount()) return -1;
+
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer ts = ByteBuffer.allocate(8);
+            readFully(ch, ts, HEADER_SIZE + index * RECORD_SIZE);
+            ts.flip();
+            return ts.getLong();
+        } catch (IOException e) {
+            System.err.println("Read log error: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int r = ch.read(buf, position);
+            if (r < 0) throw new EOFException("Auth log truncated.");
+            position += r;
+        }
+    }
+
+    // ---------------- Migration ----------------
+
+    private boolean hasHeader() throws IOException {
+        if (file.length() < HEADER_SIZE) return false;
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer b = ByteBuffer.allocate(8);
+            readFully(ch, b, 0);
+            b.flip();
+            return b.getLong() == MAGIC;
+        }
+    }
+
+    // old format: long timestamp, UTF username, UTF event, UTF formatted date
+    private void migrateLegacy() {
+        try {
+            if (!file.exists() || file.length() == 0 || hasHeader()) return;
+        } catch (IOException e) {
+            System.err.println("Read log error: " + e.getMessage());
+            return;
+        }
+
+        List<Entry> old = new ArrayList<>();
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                long ts = dis.readLong();
+                String username = dis.readUTF();
+                String event = dis.readUTF();
+                dis.readUTF(); // formatted date: derived from the timestamp now
+                old.add(new Entry(ts, username, event));
+            }
+        } catch (EOFException ignored) {
+            // end of file
+        } catch (IOException e) {
+            System.err.println("Read log error: " + e.getMessage());
+            return;
+        }
+
+        // keep timestamps sorted for the binary search
+        long last = Long.MIN_VALUE;
+        List<Entry> sorted = new ArrayList<>(old.size());
+        for (Entry e : old) {
+            last = Math.max(last, e.timestamp);
+            sorted.add(e.timestamp == last ? e : new Entry(last, e.username, e.event));
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ch.write(header());
+            ByteBuffer buf = ByteBuffer.allocate(SCAN_BLOCK * RECORD_SIZE);
+            for (Entry e : sorted) {
+                if (!buf.hasRemaining()) {
+                    buf.flip();
+                    while (buf.hasRemaining()) ch.write(buf);
+                    buf.clear();
+                }
+                encode(e, buf);
+            }
+            buf.flip();
+            while (buf.hasRemaining()) ch.write(buf);
+        } catch (IOException e) {
+            System.err.println("Auth log migration error: " + e.getMessage());
+            tmp.delete();
+            return;
+        }
+
+        // old file kept as auth_log.dat.legacy
+        try {
+            Files.copy(file.toPath(), new File(file.getPath() + ".legacy").toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tmp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Auth log migration error: " + e.getMessage());
+            tmp.delete();
+        }
+    }
+}
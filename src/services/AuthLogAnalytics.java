@@ -0,0 +1,274 @@
+package services;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * AuthLogAnalytics
+ * One pass over the auth log (AuthLogStore.scan) into primitive counters:
+ * - events per hour (LOGIN / FAILED), long[] indexed by hour since the window start
+ * - per-user counters, int ids from a byte-keyed hash table (a String only per distinct user)
+ * - failed-attempt spikes: hours with far more FAILED events than the window's average
+ * Records are never turned into Entry objects or formatted strings.
+ */
+public class AuthLogAnalytics implements AuthLog.RecordVisitor {
+
+    public static final long HOUR_MS = 60L * 60 * 1000;
+
+    // a spike: at least SPIKE_MIN_FAILED failures in one hour and SPIKE_FACTOR x the hourly average
+    private static final int SPIKE_MIN_FAILED = 10;
+    private static final double SPIKE_FACTOR = 3.0;
+
+    // hour buckets are an array: windows are capped at the log's one-year retention
+    private static final long MAX_WINDOW_MS = 366L * 24 * HOUR_MS;
+
+    private static final DateTimeFormatter HOUR_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00").withZone(ZoneId.systemDefault());
+
+    // event codes
+    private static final int LOGIN = 0, LOGOUT = 1, FAILED = 2, TIMEOUT = 3, OTHER = 4;
+    private static final byte[][] EVENT_NAMES = {
+            ascii("LOGIN"), ascii("LOGOUT"), ascii("FAILED"), ascii("TIMEOUT")
+    };
+    private static final String[] EVENT_LABELS = {"LOGIN", "LOGOUT", "FAILED", "TIMEOUT", "OTHER"};
+
+    private final long fromMillis;     // requested start (first record counted)
+    private final long bucketOrigin;   // fromMillis rounded down to the hour: first bucket starts here
+
+    private final long[] eventTotals = new long[EVENT_LABELS.length];
+    private final long[] loginsPerHour;
+    private final long[] failedPerHour;
+    private long records;
+
+    // per-user table: open addressing on the raw username bytes -> user id
+    private int[] slots = new int[256];            // user id + 1, 0 = empty
+    private int[] slotHashes = new int[256];
+    private byte[][] userBytes = new byte[64][];
+    private String[] userNames = new String[64];
+    private long[][] userCounts = new long[64][];  // [id][event code]
+    private int userCount;
+
+    private AuthLogAnalytics(long fromMillis, long toMillis) {
+        this.fromMillis = Math.max(fromMillis, toMillis - MAX_WINDOW_MS);
+        this.bucketOrigin = this.fromMillis - Math.floorMod(this.fromMillis, HOUR_MS);
+
+        int hours = (int) Math.max(1, (toMillis - bucketOrigin + HOUR_MS - 1) / HOUR_MS);
+        loginsPerHour = new long[hours];
+        failedPerHour = new long[hours];
+    }
+
+    // Aggregates every record with fromMillis <= timestamp < toMillis (at most one year back from toMillis).
+    public static AuthLogAnalytics analyze(AuthLogStore store, long fromMillis, long toMillis) {
+        AuthLogAnalytics a = new AuthLogAnalytics(fromMillis, toMillis);
+        if (toMillis > fromMillis) store.scan(a.fromMillis, toMillis, a);
+        return a;
+    }
+
+    // ---------------- Streaming ----------------
+
+    @Override
+    public void visit(long timestamp, byte[] block, int offset) {
+        records++;
+
+        int event = eventCode(block, offset + AuthLog.EVENT_OFFSET);
+        eventTotals[event]++;
+
+        int hour = (int) ((timestamp - bucketOrigin) / HOUR_MS);
+        if (hour >= 0 && hour < loginsPerHour.length) {
+            if (event == LOGIN) loginsPerHour[hour]++;
+            else if (event == FAILED) failedPerHour[hour]++;
+        }
+
+        int user = userId(block, offset + AuthLog.USERNAME_OFFSET);
+        userCounts[user][event]++;
+    }
+
+    private static int eventCode(byte[] b, int off) {
+        int len = b[off] & 0xFF;
+        for (int code = 0; code < EVENT_NAMES.length; code++) {
+            byte[] name = EVENT_NAMES[code];
+            if (name.length == len && regionEquals(b, off + 1, name, 0, len)) return code;
+        }
+        return OTHER;
+    }
+
+    // id for the username stored at off (length byte + bytes); new users get the next id
+    private int userId(byte[] b, int off) {
+        int len = b[off] & 0xFF;
+        int start = off + 1;
+
+        int h = 0x811C9DC5;   // FNV-1a
+        for (int i = 0; i < len; i++) {
+            h ^= b[start + i];
+            h *= 0x01000193;
+        }
+
+        int mask = slots.length - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            int id = slots[i] - 1;
+            if (id < 0) return addUser(b, start, len, h, i);
+
+            if (slotHashes[i] == h && userBytes[id].length == len && regionEquals(b, start, userBytes[id], 0, len)) {
+                return id;
+            }
+        }
+    }
+
+    private int addUser(byte[] b, int start, int len, int hash, int slot) {
+        int id = userCount++;
+        if (id == userBytes.length) {
+            int cap = userBytes.length * 2;
+            userBytes = Arrays.copyOf(userBytes, cap);
+            userNames = Arrays.copyOf(userNames, cap);
+            userCounts = Arrays.copyOf(userCounts, cap);
+        }
+
+        userBytes[id] = Arrays.copyOfRange(b, start, start + len);
+        userNames[id] = new String(userBytes[id], StandardCharsets.UTF_8);
+        userCounts[id] = new long[EVENT_LABELS.length];
+
+        slots[slot] = id + 1;
+        slotHashes[slot] = hash;
+
+        // keep the table at most half full
+        if (userCount * 2 > slots.length) rehash();
+        return id;
+    }
+
+    private void rehash() {
+        int[] oldSlots = slots;
+        int[] oldHashes = slotHashes;
+        slots = new int[oldSlots.length * 2];
+        slotHashes = new int[slots.length];
+
+        int mask = slots.length - 1;
+        for (int i = 0; i < oldSlots.length; i++) {
+            if (oldSlots[i] == 0) continue;
+            int j = oldHashes[i] & mask;
+            while (slots[j] != 0) j = (j + 1) & mask;
+            slots[j] = oldSlots[i];
+            slotHashes[j] = oldHashes[i];
+        }
+    }
+
+    private static boolean regionEquals(byte[] a, int aOff, byte[] b, int bOff, int len) {
+        for (int i = 0; i < len; i++) {
+            if (a[aOff + i] != b[bOff + i]) return false;
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // ---------------- Results ----------------
+
+    public static class UserStat {
+        public final String username;
+        public final long logins;
+        public final long failed;
+        public final long total;
+
+        UserStat(String username, long logins, long failed, long total) {
+            this.username = username;
+            this.logins = logins;
+            this.failed = failed;
+            this.total = total;
+        }
+    }
+
+    public static class HourCount {
+        public final long hourStart;
+        public final long count;
+
+        HourCount(long hourStart, long count) {
+            this.hourStart = hourStart;
+            this.count = count;
+        }
+
+        @Override
+        public String toString() {
+            return HOUR_FORMAT.format(Instant.ofEpochMilli(hourStart)) + "  " + count;
+        }
+    }
+
+    public long getRecordCount() {
+        return records;
+    }
+
+    public int getUserCount() {
+        return userCount;
+    }
+
+    public long getLogins() {
+        return eventTotals[LOGIN];
+    }
+
+    public long getFailed() {
+        return eventTotals[FAILED];
+    }
+
+    public long getLogouts() {
+        return eventTotals[LOGOUT];
+    }
+
+    public long getTimeouts() {
+        return eventTotals[TIMEOUT];
+    }
+
+    public long getHourStart(int hour) {
+        return bucketOrigin + hour * HOUR_MS;
+    }
+
+    public int getHourCount() {
+        return loginsPerHour.length;
+    }
+
+    public long[] getLoginsPerHour() {
+        return loginsPerHour.clone();
+    }
+
+    public long[] getFailedPerHour() {
+        return failedPerHour.clone();
+    }
+
+    // most active users (all events), highest first
+    public List<UserStat> getTopUsers(int n) {
+        Integer[] ids = new Integer[userCount];
+        for (int i = 0; i < userCount; i++) ids[i] = i;
+        Arrays.sort(ids, (a, b) -> Long.compare(total(b), total(a)));
+
+        List<UserStat> out = new ArrayList<>();
+        for (int i = 0; i < Math.min(n, ids.length); i++) {
+            long[] c = userCounts[ids[i]];
+            out.add(new UserStat(userNames[ids[i]], c[LOGIN], c[FAILED], total(ids[i])));
+        }
+        return out;
+    }
+
+    // hours with a burst of FAILED events, oldest first
+    public List<HourCount> getFailedSpikes() {
+        List<HourCount> out = new ArrayList<>();
+        if (eventTotals[FAILED] == 0) return out;
+
+        double average = (double) eventTotals[FAILED] / failedPerHour.length;
+        double threshold = Math.max(SPIKE_MIN_FAILED, average * SPIKE_FACTOR);
+
+        for (int h = 0; h < failedPerHour.length; h++) {
+            if (failedPerHour[h] >= threshold) out.add(new HourCount(getHourStart(h), failedPerHour[h]));
+        }
+        return out;
+    }
+
+    private long total(int id) {
+        long t = 0;
+        for (long c : userCounts[id]) t += c;
+        return t;
+    }
+}
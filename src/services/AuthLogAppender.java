@@ -0,0 +1,193 @@
+package services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * AuthLogAppender
+ * Background writer for auth_log.dat so LOGIN/LOGOUT never wait on file I/O.
+ * - append() only queues the event (timestamp taken at call time)
+ * - one writer thread drains the queue in batches through a single open FileChannel
+ * - a batch is written when BATCH_SIZE events are waiting or FLUSH_INTERVAL_MS has passed
+ * - flush() writes everything queued so far (readers call it first); events leave the
+ *   queue only inside drainAndWrite(), so nothing is "in flight" where flush can't see it
+ * - close() drains the queue and closes the file (also run on JVM shutdown)
+ *
+ * Records are AuthLog's fixed-width layout; timestamps are never written out of
+ * order (a late event from a racing thread gets the previous timestamp), so the
+ * file stays sorted for AuthLog's binary search.
+ */
+public class AuthLogAppender {
+
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final int BATCH_SIZE = 256;
+    private static final long FLUSH_INTERVAL_MS = 200;
+
+    // Optional rolling of the active file (see AuthLogStore)
+    public interface Rotator {
+        boolean shouldRotate(long activeBytes);
+
+        // called with the active file closed; the next write starts a new file
+        void rotate();
+    }
+
+    private final AuthLog log;
+    private final Rotator rotator;
+    private final BlockingQueue<AuthLog.Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writer;
+    private final Object batchReady = new Object();   // append() -> writer: a full batch is waiting
+
+    private FileChannel channel;        // opened on first write, guarded by "this"
+    private long lastTimestamp;         // guarded by "this"
+    private volatile boolean closed;
+
+    public AuthLogAppender(AuthLog log) {
+        this(log, null);
+    }
+
+    public AuthLogAppender(AuthLog log, Rotator rotator) {
+        this.log = log;
+        this.rotator = rotator;
+
+        writer = new Thread(this::writeLoop, "auth-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "auth-log-shutdown"));
+    }
+
+    // Queue an event; returns immediately unless the queue is full.
+    public void append(String username, String event) {
+        AuthLog.Entry e = new AuthLog.Entry(System.currentTimeMillis(), username, event);
+
+        if (closed) {
+            writeBatch(single(e));
+            return;
+        }
+        if (!queue.offer(e)) {
+            // writer can't keep up: write this caller's backlog inline
+            flush();
+            if (!queue.offer(e)) writeBatch(single(e));
+        }
+
+        if (queue.size() >= BATCH_SIZE) {
+            synchronized (batchReady) {
+                batchReady.notify();
+            }
+        }
+    }
+
+    // Write everything queued so far.
+    public void flush() {
+        drainAndWrite();
+    }
+
+    public void close() {
+        if (closed) return;
+        closed = true;
+
+        writer.interrupt();
+        try {
+            writer.join(2000);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+
+        flush();
+
+        synchronized (this) {
+            if (channel != null) {
+                try {
+                    channel.force(false);
+                    channel.close();
+                } catch (IOException e) {
+                    System.err.println("Auth log error: " + e.getMessage());
+                }
+                channel = null;
+            }
+        }
+    }
+
+    // ---------------- Writer ----------------
+
+    private void writeLoop() {
+        while (!closed) {
+            try {
+                // events stay queued while waiting, so flush() always sees them
+                synchronized (batchReady) {
+                    if (queue.size() < BATCH_SIZE) batchReady.wait(FLUSH_INTERVAL_MS);
+                }
+                drainAndWrite();
+
+            } catch (InterruptedException ie) {
+                // close(): whatever is left is drained there
+                return;
+            }
+        }
+    }
+
+    // take + write under one lock: when it returns, every event queued before the call is in the file
+    private synchronized void drainAndWrite() {
+        if (queue.isEmpty()) return;
+
+        List<AuthLog.Entry> batch = new ArrayList<>(Math.min(queue.size(), QUEUE_CAPACITY));
+        queue.drainTo(batch);
+        writeBatch(batch);
+    }
+
+    // one write() call per batch
+    private synchronized void writeBatch(List<AuthLog.Entry> batch) {
+        if (batch.isEmpty()) return;
+
+        try {
+            if (channel == null) openChannel();
+
+            // roll before writing: a new day's first batch must not land in yesterday's segment
+            if (rotator != null && rotator.shouldRotate(channel.size())) {
+                channel.force(false);
+                channel.close();
+                channel = null;
+                rotator.rotate();
+                openChannel();
+            }
+
+            ByteBuffer buf = ByteBuffer.allocate(batch.size() * AuthLog.RECORD_SIZE);
+            for (AuthLog.Entry e : batch) {
+                if (e.timestamp < lastTimestamp) e = new AuthLog.Entry(lastTimestamp, e.username, e.event);
+                lastTimestamp = e.timestamp;
+                AuthLog.encode(e, buf);
+            }
+            buf.flip();
+            while (buf.hasRemaining()) channel.write(buf);
+
+        } catch (IOException e) {
+            System.err.println("Auth log error: " + e.getMessage());
+        }
+    }
+
+    private void openChannel() throws IOException {
+        channel = FileChannel.open(log.getFile().toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (channel.size() == 0) {
+            ByteBuffer header = AuthLog.header();
+            while (header.hasRemaining()) channel.write(header);
+        } else {
+            // drop a half-written record (crash) so new records stay aligned
+            long extra = (channel.size() - AuthLog.HEADER_SIZE) % AuthLog.RECORD_SIZE;
+            if (extra > 0) channel.truncate(channel.size() - extra);
+        }
+        lastTimestamp = Math.max(lastTimestamp, log.getLastTimestamp());
+    }
+
+    private static List<AuthLog.Entry> single(AuthLog.Entry e) {
+        List<AuthLog.Entry> list = new ArrayList<>(1);
+        list.add(e);
+        return list;
+    }
+}
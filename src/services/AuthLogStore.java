@@ -0,0 +1,428 @@
+package services;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * AuthLogStore
+ * The auth log as a set of segments:
+ * - the active AuthLog file (appended to by AuthLogAppender)
+ * - rolled segments, gzip-compressed in the archive folder
+ *
+ * The active file is rolled when it reaches maxActiveBytes or when its first
+ * entry is from an earlier day. Archives older than the retention period are deleted.
+ * A manifest lists every archive with its first/last timestamp, so a time-range
+ * query only opens archives that overlap the range.
+ *
+ * Manifest format (archive folder/manifest.txt):
+ * File|FirstTimestamp|LastTimestamp|Records
+ * Archive names carry the same timestamps (auth_log_<first>_<last>[_n].dat.gz),
+ * so a lost manifest is rebuilt from the folder.
+ */
+public class AuthLogStore {
+
+    public static final String MANIFEST_HEADER = "File|FirstTimestamp|LastTimestamp|Records";
+
+    private static final String MANIFEST_FILE = "manifest.txt";
+    private static final Pattern ARCHIVE_NAME = Pattern.compile("auth_log_(\\d+)_(\\d+)(_\\d+)?\\.dat\\.gz");
+
+    private final AuthLog active;
+    private final AuthLogAppender appender;
+    private final File archiveDir;
+
+    private final long maxActiveBytes;
+    private final boolean rotateDaily;
+    private final long retentionMillis;
+
+    // readers share, rotation is exclusive (records are never missing mid-roll)
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Segment> archives = new ArrayList<>();   // oldest first, guarded by lock
+
+    // day of the active file's first entry (null = not known yet)
+    private LocalDate activeDay;
+
+    public AuthLogStore(String activePath, String archiveFolder,
+                        long maxActiveBytes, boolean rotateDaily, long retentionMillis) {
+        this.active = new AuthLog(activePath);
+        this.archiveDir = new File(archiveFolder);
+        this.maxActiveBytes = Math.max(AuthLog.RECORD_SIZE * 16L, maxActiveBytes);
+        this.rotateDaily = rotateDaily;
+        this.retentionMillis = retentionMillis;
+
+        loadManifest();
+        finishInterruptedRotation();
+        this.appender = new AuthLogAppender(active, new AuthLogAppender.Rotator() {
+            @Override
+            public boolean shouldRotate(long activeBytes) {
+                return AuthLogStore.this.shouldRotate(activeBytes);
+            }
+
+            @Override
+            public void rotate() {
+                AuthLogStore.this.rotate();
+            }
+        });
+    }
+
+    // ---------------- Writing ----------------
+
+    public void append(String username, String event) {
+        appender.append(username, event);
+    }
+
+    public void flush() {
+        appender.flush();
+    }
+
+    // ---------------- Queries (all segments) ----------------
+
+    public List<AuthLog.Entry> readAll() {
+        return range(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    // fromMillis <= timestamp < toMillis, oldest first
+    public List<AuthLog.Entry> range(long fromMillis, long toMillis) {
+        appender.flush(); // outside the lock: a flush may roll the file
+
+        List<AuthLog.Entry> out = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Segment s : archives) {
+                if (s.lastTimestamp < fromMillis || s.firstTimestamp >= toMillis) continue;
+                readArchive(s, fromMillis, toMillis, out, Integer.MAX_VALUE);
+            }
+            out.addAll(active.range(fromMillis, toMillis));
+        } finally {
+            lock.readLock().unlock();
+        }
+        return out;
+    }
+
+    // last n entries across segments, oldest first
+    public List<AuthLog.Entry> tail(int n) {
+        appender.flush();
+        if (n <= 0) return new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            List<AuthLog.Entry> newest = active.tail(n);
+            List<List<AuthLog.Entry>> older = new ArrayList<>();
+            int have = newest.size();
+
+            // walk archives newest -> oldest until there are enough
+            for (int i = archives.size() - 1; i >= 0 && have < n; i--) {
+                List<AuthLog.Entry> part = new ArrayList<>();
+                readArchive(archives.get(i), Long.MIN_VALUE, Long.MAX_VALUE, part, n - have);
+                older.add(part);
+                have += part.size();
+            }
+
+            List<AuthLog.Entry> out = new ArrayList<>(have);
+            for (int i = older.size() - 1; i >= 0; i--) out.addAll(older.get(i));
+            out.addAll(newest);
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Streams every record in [fromMillis, toMillis) to the visitor, oldest first (see AuthLog.scan).
+    public void scan(long fromMillis, long toMillis, AuthLog.RecordVisitor visitor) {
+        appender.flush();
+
+        lock.readLock().lock();
+        try {
+            for (Segment s : archives) {
+                if (s.lastTimestamp < fromMillis || s.firstTimestamp >= toMillis) continue;
+                scanArchive(s, fromMillis, toMillis, visitor);
+            }
+            active.scan(fromMillis, toMillis, visitor);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getArchiveCount() {
+        lock.readLock().lock();
+        try {
+            return archives.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void close() {
+        appender.close();
+    }
+
+    // ---------------- Rotation ----------------
+
+    // called by the appender's writer before a batch (it holds the file)
+    private boolean shouldRotate(long activeBytes) {
+        if (activeBytes >= maxActiveBytes) return true;
+        if (!rotateDaily || activeBytes <= AuthLog.HEADER_SIZE) return false;
+
+        if (activeDay == null) {
+            long first = active.getFirstTimestamp();
+            if (first < 0) return false;
+            activeDay = dayOf(first);
+        }
+        return activeDay.isBefore(LocalDate.now());
+    }
+
+    // active file is closed by the appender while this runs
+    private void rotate() {
+        lock.writeLock().lock();
+        try {
+            long records = active.getRecordCount();
+            if (records == 0) return;
+
+            long first = active.getFirstTimestamp();
+            long last = active.getLastTimestamp();
+
+            if (!archiveDir.exists()) archiveDir.mkdirs();
+            File gz = new File(archiveDir, "auth_log_" + first + "_" + last + ".dat.gz");
+            // burst within one millisecond: same bounds as the previous archive
+            for (int n = 1; gz.exists(); n++) {
+                gz = new File(archiveDir, "auth_log_" + first + "_" + last + "_" + n + ".dat.gz");
+            }
+            File tmp = new File(gz.getPath() + ".tmp");
+
+            try (InputStream in = new BufferedInputStream(new FileInputStream(active.getFile()));
+                 OutputStream out = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                // whole records only (the appender trims a torn tail before writing)
+                long remaining = AuthLog.HEADER_SIZE + records * AuthLog.RECORD_SIZE;
+                byte[] buf = new byte[64 * 1024];
+                int r;
+                while (remaining > 0 && (r = in.read(buf, 0, (int) Math.min(buf.length, remaining))) > 0) {
+                    out.write(buf, 0, r);
+                    remaining -= r;
+                }
+            }
+
+            Files.move(tmp.toPath(), gz.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            archives.add(new Segment(gz, first, last, records));
+            applyRetention();
+            saveManifest();
+
+            // appender re-creates the active file (with header) on the next write;
+            // a crash before this delete is undone by finishInterruptedRotation()
+            Files.delete(active.getFile().toPath());
+            activeDay = null;
+
+        } catch (IOException e) {
+            System.err.println("Auth log rotation error: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // A crash between publishing the archive and deleting the active file leaves the same
+    // records in both: the archive covers exactly the active file's range, so drop the file.
+    private void finishInterruptedRotation() {
+        if (archives.isEmpty() || !active.getFile().exists()) return;
+
+        Segment last = archives.get(archives.size() - 1);
+        long records = active.getRecordCount();
+        if (records == 0 || (last.records >= 0 && records != last.records)
+                || active.getFirstTimestamp() != last.firstTimestamp
+                || active.getLastTimestamp() != last.lastTimestamp) {
+            return;
+        }
+
+        try {
+            Files.delete(active.getFile().toPath());
+            System.err.println("Auth log: removed active file already archived as " + last.file.getName());
+        } catch (IOException e) {
+            System.err.println("Auth log rotation error: " + e.getMessage());
+        }
+    }
+
+    private void applyRetention() {
+        if (retentionMillis <= 0) return;
+
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        for (int i = archives.size() - 1; i >= 0; i--) {
+            Segment s = archives.get(i);
+            if (s.lastTimestamp < cutoff) {
+                if (!s.file.delete() && s.file.exists()) {
+                    System.err.println("Could not delete old auth log archive: " + s.file.getName());
+                    continue;
+                }
+                archives.remove(i);
+            }
+        }
+    }
+
+    // ---------------- Archives ----------------
+
+    // streams one gzip segment; keeps only the last "limit" matches
+    private void readArchive(Segment s, long fromMillis, long toMillis, List<AuthLog.Entry> out, int limit) {
+        Deque<AuthLog.Entry> kept = new ArrayDeque<>();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(s.file)), 64 * 1024))) {
+            byte[] header = new byte[AuthLog.HEADER_SIZE];
+            in.readFully(header);
+
+            byte[] rec = new byte[AuthLog.RECORD_SIZE];
+            ByteBuffer buf = ByteBuffer.wrap(rec);
+            while (true) {
+                in.readFully(rec);
+                buf.clear();
+                AuthLog.Entry e = AuthLog.decode(buf);
+
+                if (e.timestamp < fromMillis) continue;
+                if (e.timestamp >= toMillis) break;   // sorted
+
+                kept.addLast(e);
+                if (kept.size() > limit) kept.removeFirst();
+            }
+        } catch (EOFException ignored) {
+            // end of segment
+        } catch (IOException e) {
+            System.err.println("Read log error (" + s.file.getName() + "): " + e.getMessage());
+        }
+        out.addAll(kept);
+    }
+
+    private void scanArchive(Segment s, long fromMillis, long toMillis, AuthLog.RecordVisitor visitor) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(s.file)), 64 * 1024))) {
+            byte[] header = new byte[AuthLog.HEADER_SIZE];
+            in.readFully(header);
+
+            byte[] rec = new byte[AuthLog.RECORD_SIZE];
+            ByteBuffer buf = ByteBuffer.wrap(rec);
+            while (true) {
+                in.readFully(rec);
+                long ts = buf.getLong(0);
+
+                if (ts < fromMillis) continue;
+                if (ts >= toMillis) break;   // sorted
+                visitor.visit(ts, rec, 0);
+            }
+        } catch (EOFException ignored) {
+            // end of segment
+        } catch (IOException e) {
+            System.err.println("Read log error (" + s.file.getName() + "): " + e.getMessage());
+        }
+    }
+
+    private void loadManifest() {
+        archives.clear();
+        File manifest = new File(archiveDir, MANIFEST_FILE);
+
+        if (manifest.exists()) {
+            try (BufferedReader br = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(manifest), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    if (line.trim().isEmpty() || line.equals(MANIFEST_HEADER)) continue;
+
+                    String[] p = line.split("\\|", -1);
+                    if (p.length < 4) continue;
+                    try {
+                        File f = new File(archiveDir, p[0].trim());
+                        if (!f.exists()) continue;
+                        archives.add(new Segment(f, Long.parseLong(p[1].trim()),
+                                Long.parseLong(p[2].trim()), Long.parseLong(p[3].trim())));
+                    } catch (NumberFormatException ignored) {
+                        // skip bad line
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Auth log manifest read error: " + e.getMessage());
+            }
+        }
+
+        // archives not in the manifest (lost / older manifest): recover from file names
+        File[] files = archiveDir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                Matcher m = ARCHIVE_NAME.matcher(f.getName());
+                if (!m.matches() || contains(f)) continue;
+                archives.add(new Segment(f, Long.parseLong(m.group(1)), Long.parseLong(m.group(2)), -1));
+            }
+        }
+
+        archives.sort(Comparator.comparingLong((Segment s) -> s.firstTimestamp)
+                .thenComparingLong(s -> s.lastTimestamp)
+                .thenComparing(s -> s.file.getName().length())
+                .thenComparing(s -> s.file.getName()));
+    }
+
+    private void saveManifest() throws IOException {
+        File manifest = new File(archiveDir, MANIFEST_FILE);
+        File tmp = new File(archiveDir, MANIFEST_FILE + ".tmp");
+
+        try (BufferedWriter bw = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+            bw.write(MANIFEST_HEADER);
+            bw.newLine();
+            for (Segment s : archives) {
+                bw.write(s.file.getName() + "|" + s.firstTimestamp + "|" + s.lastTimestamp + "|" + s.records);
+                bw.newLine();
+            }
+        }
+
+        Files.move(tmp.toPath(), manifest.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private boolean contains(File f) {
+        for (Segment s : archives) {
+            if (s.file.getName().equals(f.getName())) return true;
+        }
+        return false;
+    }
+
+    private static LocalDate dayOf(long millis) {
+        return Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private static class Segment {
+        final File file;
+        final long firstTimestamp;
+        final long lastTimestamp;
+        final long records;     // -1 = unknown (recovered from the file name)
+
+        Segment(File file, long firstTimestamp, long lastTimestamp, long records) {
+            this.file = file;
+            this.firstTimestamp = firstTimestamp;
+            this.lastTimestamp = lastTimestamp;
+            this.records = records;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package services;
+
+import model.Course;
+import model.Milestone;
+import model.RecoveryPlan;
+import model.Student;
+import repository.CourseRepository;
+import repository.RecoveryPlanRepository;
+import repository.StudentRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BulkMailer
+ * Sends one templated email per recipient for cohort notifications
+ * (NOT_ELIGIBLE students, students with an active recovery plan).
+ * - concurrent senders over pooled SMTP connections
+ * - token-bucket rate limit so the provider doesn't throttle us
+ * - run summary (sent / failed / skipped + time)
+ *
+ * Templates are EmailTemplates (compiled once), placeholders:
+ * {studentId} {studentName} {courseId} {plan} {reason}
+ */
+public class BulkMailer {
+
+    private static final String PLANS_FILE = "data/recovery_plans.txt";
+
+    private final EmailService emailService;
+    private final TokenBucket rateLimiter;
+    private final int senders;
+
+    public BulkMailer(EmailService emailService, double messagesPerSecond, int burst, int senders) {
+        this.emailService = emailService;
+        this.rateLimiter = new TokenBucket(messagesPerSecond, burst);
+        this.senders = Math.max(1, senders);
+    }
+
+    // ---------------- Recipients ----------------
+
+    public static class Recipient {
+        public final String email;
+        public final String studentId;
+        public final String studentName;
+        public final String courseId;
+        public final String plan;
+        public final String reason;
+
+        public Recipient(String email, String studentId, String studentName,
+                         String courseId, String plan, String reason) {
+            this.email = safe(email);
+            this.studentId = safe(studentId);
+            this.studentName = safe(studentName);
+            this.courseId = safe(courseId);
+            this.plan = (plan == null) ? "" : plan;
+            this.reason = safe(reason);
+        }
+
+        Map<String, String> toValues() {
+            Map<String, String> v = new HashMap<String, String>(8);
+            v.put("studentId", studentId);
+            v.put("studentName", studentName);
+            v.put("courseId", courseId);
+            v.put("plan", plan);
+            v.put("reason", reason);
+            return v;
+        }
+    }
+
+    // Every NOT_ELIGIBLE row (emails looked up in one pass over the students CSV).
+    public static List<Recipient> fromNotEligible(List<EligibilityService.EligibilityRow> rows,
+                                                  StudentRepository studentRepo) {
+        Map<String, Student> byId = indexStudents(studentRepo);
+        List<Recipient> list = new ArrayList<Recipient>();
+
+        for (EligibilityService.EligibilityRow row : rows) {
+            if (row == null || row.status != EligibilityService.Status.NOT_ELIGIBLE) continue;
+
+            Student s = byId.get(safe(row.studentId).toLowerCase());
+            String email = (s == null) ? "" : s.getEmail();
+            list.add(new Recipient(email, row.studentId, row.name, "", "", row.reason));
+        }
+        return list;
+    }
+
+    // Every saved recovery plan that still has pending milestones.
+    public static List<Recipient> fromActiveRecoveryPlans(StudentRepository studentRepo,
+                                                          CourseRepository courseRepo) {
+        Map<String, Student> byId = indexStudents(studentRepo);
+
+        Map<String, Course> coursesById = new HashMap<String, Course>();
+        for (Course c : courseRepo.loadAllCourses()) {
+            coursesById.put(c.getCourseId().toLowerCase(), c);
+        }
+
+        List<Recipient> list = new ArrayList<Recipient>();
+        for (RecoveryPlan plan : RecoveryPlanRepository.forFile(PLANS_FILE).findAll()) {
+            if (plan.isCompleted()) continue;
+
+            Student s = byId.get(plan.getStudentId().toLowerCase());
+            if (s == null) continue;
+
+            Course c = coursesById.get(plan.getCourseId().toLowerCase());
+            list.add(new Recipient(s.getEmail(), s.getStudentId(), s.getFullName(),
+                    plan.getCourseId(), planText(plan, c), ""));
+        }
+        return list;
+    }
+
+    // ---------------- Run ----------------
+
+    public static class RunSummary {
+        public final int total;
+        public final int sent;
+        public final int failed;
+        public final int skipped;   // no email on record
+        public final long elapsedMillis;
+        public final List<String> failures;
+
+        RunSummary(int total, int sent, int failed, int skipped, long elapsedMillis, List<String> failures) {
+            this.total = total;
+            this.sent = sent;
+            this.failed = failed;
+            this.skipped = skipped;
+            this.elapsedMillis = elapsedMillis;
+            this.failures = Collections.unmodifiableList(failures);
+        }
+
+        public double getMessagesPerSecond() {
+            return (elapsedMillis == 0) ? sent : sent * 1000.0 / elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "Total: " + total + " | Sent: " + sent + " | Failed: " + failed +
+                    " | Skipped (no email): " + skipped + " | Time: " + elapsedMillis + " ms" +
+                    String.format(" (%.1f msg/s)", getMessagesPerSecond());
+        }
+    }
+
+    // templateName = one of the EmailTemplates names (e.g. NOT_ELIGIBLE, RECOVERY_PLAN)
+    public RunSummary send(List<Recipient> recipients, String templateName) throws InterruptedException {
+        return send(recipients, EmailTemplates.get(templateName), EmailMetrics.MessageType.forTemplate(templateName));
+    }
+
+    public RunSummary send(List<Recipient> recipients, EmailTemplate template) throws InterruptedException {
+        return send(recipients, template, EmailMetrics.MessageType.OTHER);
+    }
+
+    // type = counter the messages are recorded under in EmailService.getMetrics()
+    public RunSummary send(List<Recipient> recipients, EmailTemplate template,
+                           EmailMetrics.MessageType type) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        AtomicInteger sent = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger skipped = new AtomicInteger();
+        List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+
+        // last health check says the server is down: don't wait on a timeout per recipient
+        SmtpHealthMonitor.Status health = emailService.getHealth();
+        if (health.isDown()) {
+            for (Recipient r : recipients) {
+                if (r.email.isEmpty()) skipped.incrementAndGet();
+                else failed.incrementAndGet();
+            }
+            failures.add("SMTP server unavailable: " + health.error);
+            return new RunSummary(recipients.size(), 0, failed.get(), skipped.get(),
+                    System.currentTimeMillis() - start, failures);
+        }
+
+        // reuse SMTP connections for the whole run, on a copy: the shared service is also the
+        // outbox's sender, so its pooling setting stays as it is
+        EmailService runService = emailService.copy();
+        runService.enablePooling(senders);
+
+        ExecutorService pool = Executors.newFixedThreadPool(senders);
+        try {
+            for (Recipient r : recipients) {
+                if (r.email.isEmpty()) {
+                    skipped.incrementAndGet();
+                    continue;
+                }
+
+                pool.execute(() -> {
+                    try {
+                        rateLimiter.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        failed.incrementAndGet();
+                        failures.add(r.studentId + " <" + r.email + "> (interrupted)");
+                        return;
+                    }
+
+                    Map<String, String> v = r.toValues();
+                    boolean ok = runService.sendEmail(r.email, template.renderSubject(v), template.renderBody(v), type);
+                    if (ok) {
+                        sent.incrementAndGet();
+                    } else {
+                        failed.incrementAndGet();
+                        failures.add(r.studentId + " <" + r.email + ">");
+                    }
+                });
+            }
+
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+        } finally {
+            pool.shutdownNow();
+            runService.disablePooling();
+        }
+
+        return new RunSummary(recipients.size(), sent.get(), failed.get(), skipped.get(),
+                System.currentTimeMillis() - start, new ArrayList<String>(failures));
+    }
+
+    // ---------------- Helpers ----------------
+
+    // same wording as the plan email sent from RecoveryManagementPanel
+    private static String planText(RecoveryPlan plan, Course c) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Recovery Plan for ").append(plan.getCourseId()).append(" - ")
+          .append(c == null ? "" : c.getCourseName()).append("\n\n");
+
+        for (Milestone m : plan.getMilestones()) {
+            sb.append("- ").append(m.getTitle())
+              .append(" (Due: ").append(m.getDeadline()).append(") ")
+              .append(m.isCompleted() ? "[DONE]" : "[PENDING]")
+              .append("\n");
+        }
+        return sb.toString();
+    }
+
+    private static Map<String, Student> indexStudents(StudentRepository studentRepo) {
+        Map<String, Student> byId = new HashMap<String, Student>();
+        for (Student s : studentRepo.loadAllStudents()) {
+            byId.put(s.getStudentId().toLowerCase(), s);
+        }
+        return byId;
+    }
+
+    private static String safe(String s) {
+        return (s == null) ? "" : s.trim();
+    }
+}
@@ -0,0 +1,108 @@
+package services;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * CredentialCache
+ * Remembers recently verified logins for a short time, so repeated logins
+ * (token clients, re-login after timeout) skip the slow PBKDF2 check.
+ * - passwords are never kept: only an HMAC with a random per-process key
+ * - an entry is tied to the stored hash, so a password change invalidates it
+ */
+public class CredentialCache {
+
+    private static final String MAC = "HmacSHA256";
+
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final byte[] key = new byte[32];
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private static class Entry {
+        final String storedHash;
+        final byte[] digest;
+        final long expiresAt;
+
+        Entry(String storedHash, byte[] digest, long expiresAt) {
+            this.storedHash = storedHash;
+            this.digest = digest;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public CredentialCache(long ttlMillis, int maxEntries) {
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = Math.max(1, maxEntries);
+        new SecureRandom().nextBytes(key);
+    }
+
+    // true only if this exact password was verified against this stored hash within the TTL
+    public boolean isVerified(String username, String password, String storedHash) {
+        if (ttlMillis <= 0) return false;
+
+        String k = key(username);
+        Entry e = entries.get(k);
+        if (e == null) return false;
+
+        if (e.expiresAt <= System.currentTimeMillis() || !e.storedHash.equals(storedHash)) {
+            entries.remove(k, e);
+            return false;
+        }
+        return MessageDigest.isEqual(e.digest, digest(username, password));
+    }
+
+    public void remember(String username, String password, String storedHash) {
+        if (ttlMillis <= 0 || storedHash == null) return;
+
+        if (entries.size() >= maxEntries) prune();
+        entries.put(key(username), new Entry(storedHash, digest(username, password),
+                System.currentTimeMillis() + ttlMillis));
+    }
+
+    public void invalidate(String username) {
+        entries.remove(key(username));
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // ---------------- Internal ----------------
+
+    private void prune() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(e -> e.expiresAt <= now);
+
+        // still full: start over rather than grow without bound
+        if (entries.size() >= maxEntries) entries.clear();
+    }
+
+    private byte[] digest(String username, String password) {
+        try {
+            Mac mac = Mac.getInstance(MAC);
+            mac.init(new SecretKeySpec(key, MAC));
+            mac.update(key(username).getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal((password == null ? "" : password).getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 unavailable: " + e.getMessage(), e);
+        }
+    }
+
+    private static String key(String username) {
+        return (username == null) ? "" : username.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,288 @@
+package services;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * EmailMetrics
+ * In-process counters for EmailService:
+ * - sent / failed per message type
+ * - failures per exception class
+ * - latency histograms: CONNECT (TCP + STARTTLS + AUTH) and SEND (MAIL..DATA)
+ *
+ * dump() gives a text snapshot (System Services screen, export to file).
+ */
+public class EmailMetrics {
+
+    public enum MessageType {
+        ACCOUNT_CREATION, PASSWORD_RESET, RECOVERY_PLAN, REPORT, ELIGIBILITY, OTHER;
+
+        // type of a message built from one of the EmailTemplates
+        public static MessageType forTemplate(String templateName) {
+            if (EmailTemplates.ACCOUNT_CREATED.equals(templateName)) return ACCOUNT_CREATION;
+            if (EmailTemplates.PASSWORD_RESET.equals(templateName)) return PASSWORD_RESET;
+            if (EmailTemplates.RECOVERY_PLAN.equals(templateName)) return RECOVERY_PLAN;
+            if (EmailTemplates.PERFORMANCE_REPORT.equals(templateName)
+                    || EmailTemplates.PERFORMANCE_REPORT_ATTACHMENT.equals(templateName)) return REPORT;
+            if (EmailTemplates.NOT_ELIGIBLE.equals(templateName)) return ELIGIBILITY;
+            return OTHER;
+        }
+
+        // lenient parse (saved outbox entries)
+        public static MessageType parse(String name) {
+            try {
+                return valueOf(name.trim());
+            } catch (RuntimeException e) {
+                return OTHER;
+            }
+        }
+    }
+
+    public enum Latency { CONNECT, SEND }
+
+    private final AtomicLongArray sent = new AtomicLongArray(MessageType.values().length);
+    private final AtomicLongArray failed = new AtomicLongArray(MessageType.values().length);
+    private final Map<String, AtomicLong> failuresByException = new ConcurrentHashMap<String, AtomicLong>();
+
+    private final Histogram[] histograms;
+
+    private volatile long since = System.currentTimeMillis();
+
+    public EmailMetrics() {
+        histograms = new Histogram[Latency.values().length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new Histogram();
+        }
+    }
+
+    // ---------------- Recording ----------------
+
+    public void messageSent(MessageType type) {
+        sent.incrementAndGet(type.ordinal());
+    }
+
+    public void messageFailed(MessageType type, Throwable error) {
+        failed.incrementAndGet(type.ordinal());
+        failuresByException.computeIfAbsent(exceptionKey(error), k -> new AtomicLong()).incrementAndGet();
+    }
+
+    public void record(Latency latency, long nanos) {
+        histograms[latency.ordinal()].add(nanos);
+    }
+
+    public void reset() {
+        for (int i = 0; i < sent.length(); i++) {
+            sent.set(i, 0);
+            failed.set(i, 0);
+        }
+        failuresByException.clear();
+        for (Histogram h : histograms) h.clear();
+        since = System.currentTimeMillis();
+    }
+
+    // ---------------- Queries ----------------
+
+    public long getSent(MessageType type) {
+        return sent.get(type.ordinal());
+    }
+
+    public long getFailed(MessageType type) {
+        return failed.get(type.ordinal());
+    }
+
+    public long getTotalSent() {
+        long n = 0;
+        for (int i = 0; i < sent.length(); i++) n += sent.get(i);
+        return n;
+    }
+
+    public long getTotalFailed() {
+        long n = 0;
+        for (int i = 0; i < failed.length(); i++) n += failed.get(i);
+        return n;
+    }
+
+    // exception class -> count, sorted by name
+    public Map<String, Long> getFailuresByException() {
+        Map<String, Long> copy = new TreeMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> e : failuresByException.entrySet()) {
+            copy.put(e.getKey(), e.getValue().get());
+        }
+        return copy;
+    }
+
+    public long getCount(Latency latency) {
+        return histograms[latency.ordinal()].count();
+    }
+
+    public double getAverageMillis(Latency latency) {
+        return histograms[latency.ordinal()].averageMillis();
+    }
+
+    public double getMaxMillis(Latency latency) {
+        return histograms[latency.ordinal()].maxMillis();
+    }
+
+    // upper bound of the bucket holding the p-th percentile (capped at max), p in (0, 100]
+    public double getPercentileMillis(Latency latency, double p) {
+        return histograms[latency.ordinal()].percentileMillis(p);
+    }
+
+    // ---------------- Snapshot ----------------
+
+    public String dump() {
+        SimpleDateFormat fmt = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("EMAIL METRICS\n");
+        sb.append("Snapshot: ").append(fmt.format(new Date()))
+          .append(" | Since: ").append(fmt.format(new Date(since))).append("\n\n");
+
+        sb.append(String.format("%-17s %8s %8s%n", "Type", "sent", "failed"));
+        for (MessageType t : MessageType.values()) {
+            sb.append(String.format("%-17s %8d %8d%n", t, getSent(t), getFailed(t)));
+        }
+        sb.append(String.format("%-17s %8d %8d%n%n", "TOTAL", getTotalSent(), getTotalFailed()));
+
+        sb.append("Failures by exception:\n");
+        Map<String, Long> byException = getFailuresByException();
+        if (byException.isEmpty()) sb.append("  (none)\n");
+        for (Map.Entry<String, Long> e : byException.entrySet()) {
+            sb.append(String.format("  %-50s %6d%n", e.getKey(), e.getValue()));
+        }
+        sb.append("\n");
+
+        sb.append(String.format("%-8s %7s %9s %9s %9s %9s %9s%n",
+                "Latency", "count", "avg ms", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        for (Latency l : Latency.values()) {
+            sb.append(String.format("%-8s %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    l, getCount(l), getAverageMillis(l),
+                    getPercentileMillis(l, 50), getPercentileMillis(l, 95),
+                    getPercentileMillis(l, 99), getMaxMillis(l)));
+        }
+
+        for (Latency l : Latency.values()) {
+            sb.append("\n").append(l).append(" histogram (ms):\n");
+            histograms[l.ordinal()].appendBuckets(sb);
+        }
+        return sb.toString();
+    }
+
+    // Writes dump() to a text file.
+    public boolean exportSnapshot(File file) {
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            w.write(dump());
+            return true;
+        } catch (IOException e) {
+            System.out.println("Email metrics export error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return dump();
+    }
+
+    // ---------------- Helpers ----------------
+
+    // e.g. "MailConnectException <- ConnectException"
+    private static String exceptionKey(Throwable error) {
+        if (error == null) return "Unknown";
+
+        String key = error.getClass().getSimpleName();
+        Throwable cause = error.getCause();
+        if (cause != null && cause != error) key += " <- " + cause.getClass().getSimpleName();
+        return key;
+    }
+
+    // ---------------- Histogram ----------------
+
+    // fixed buckets (upper bounds in ms, last one open-ended), lock-free
+    private static class Histogram {
+        private static final long[] BOUNDS_MS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000};
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_MS.length + 1);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        void add(long nanos) {
+            long ms = nanos / 1_000_000;
+            int i = 0;
+            while (i < BOUNDS_MS.length && ms >= BOUNDS_MS[i]) i++;
+
+            buckets.incrementAndGet(i);
+            count.incrementAndGet();
+            sum.addAndGet(nanos);
+
+            long m;
+            while (nanos > (m = max.get()) && !max.compareAndSet(m, nanos)) {
+                // retry
+            }
+        }
+
+        void clear() {
+            for (int i = 0; i < buckets.length(); i++) buckets.set(i, 0);
+            count.set(0);
+            sum.set(0);
+            max.set(0);
+        }
+
+        long count() {
+            return count.get();
+        }
+
+        double averageMillis() {
+            long n = count.get();
+            return (n == 0) ? 0.0 : (sum.get() / (double) n) / 1_000_000.0;
+        }
+
+        double maxMillis() {
+            return max.get() / 1_000_000.0;
+        }
+
+        double percentileMillis(double p) {
+            long n = 0;
+            long[] snapshot = new long[buckets.length()];
+            for (int i = 0; i < snapshot.length; i++) {
+                snapshot[i] = buckets.get(i);
+                n += snapshot[i];
+            }
+            if (n == 0) return 0.0;
+
+            // nearest-rank over the buckets
+            long rank = Math.max(1, (long) Math.ceil(p / 100.0 * n));
+            long seen = 0;
+            for (int i = 0; i < snapshot.length; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) return (i < BOUNDS_MS.length) ? Math.min(BOUNDS_MS[i], maxMillis()) : maxMillis();
+            }
+            return maxMillis();
+        }
+
+        void appendBuckets(StringBuilder sb) {
+            long lower = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                long c = buckets.get(i);
+                String range = (i < BOUNDS_MS.length)
+                        ? lower + "-" + BOUNDS_MS[i]
+                        : ">=" + lower;
+                if (c > 0) sb.append(String.format("  %-12s %8d%n", range, c));
+                if (i < BOUNDS_MS.length) lower = BOUNDS_MS[i];
+            }
+            if (count.get() == 0) sb.append("  (no samples)\n");
+        }
+    }
+}
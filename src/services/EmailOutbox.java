@@ -0,0 +1,448 @@
+package services;
+
+import javax.mail.SendFailedException;
+import javax.mail.internet.AddressException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EmailOutbox (Singleton)
+ * Disk-backed queue for outgoing emails.
+ * - enqueue() saves the message to the outbox file and returns straight away
+ * - background workers deliver due messages, retrying with exponential backoff
+ * - pending messages are reloaded on startup (delivery is at-least-once)
+ * - permanent failures / too many attempts go to the dead-letter file
+ *
+ * Outbox format (append-only, one record per line, fields escaped; the last record for an ID wins):
+ * ID|To|Attempts|NextAttemptAt|Attachment|Subject|Body|Type   (queued / retry scheduled)
+ * DONE|ID                                                    (delivered or dead-lettered)
+ * Once finished records pile up the file is rewritten with the pending messages only
+ * (temp file + atomic move).
+ * Dead-letter lines add: |FailedAt|Reason
+ */
+public class EmailOutbox {
+
+    public static final String HEADER = "ID|To|Attempts|NextAttemptAt|Attachment|Subject|Body|Type";
+
+    // files from before the Type column (rewritten in the current format on load)
+    private static final String LEGACY_HEADER = "ID|To|Attempts|NextAttemptAt|Attachment|Subject|Body";
+    private static final String DONE = "DONE";
+
+    // rewrite once the file holds more than 2x the pending messages + this many records
+    private static final int COMPACT_SLACK = 256;
+
+    private static final String OUTBOX_FILE = "data/email_outbox.txt";
+    private static final String DEAD_LETTER_FILE = "data/email_deadletter.txt";
+
+    private static final int WORKERS = 2;
+    private static final int MAX_ATTEMPTS = 6;
+    private static final long BASE_DELAY_MS = 30_000;       // 30s, 1m, 2m, 4m, 8m
+    private static final long MAX_DELAY_MS = 60 * 60_000;   // 1h cap
+    private static final long POLL_MS = 1_000;
+
+    private static EmailOutbox instance;
+
+    private final File outboxFile;
+    private final File deadLetterFile;
+    private volatile EmailService sender;
+
+    // guarded by this; id -> latest state, in queue order
+    private final Map<String, OutboxMessage> pending = new LinkedHashMap<String, OutboxMessage>();
+    private final Set<String> inFlight = new HashSet<String>();
+    private int records;            // record lines in the outbox file
+    private boolean loadFailed;     // never rewrite the file from a partial read
+
+    private final ScheduledExecutorService dispatcher;
+    private final ExecutorService workers;
+
+    public EmailOutbox(String outboxPath, String deadLetterPath, EmailService sender, int workerCount) {
+        this.outboxFile = new File(outboxPath);
+        this.deadLetterFile = new File(deadLetterPath);
+        this.sender = sender;
+
+        load();
+
+        dispatcher = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "email-outbox-dispatcher"));
+        workers = Executors.newFixedThreadPool(Math.max(1, workerCount), r -> daemon(r, "email-outbox-worker"));
+        dispatcher.scheduleWithFixedDelay(this::dispatchDue, 0, POLL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // sender delivers only if this call creates the outbox; the app passes its shared
+    // EmailService at startup (pooling, health monitor, SMTP settings)
+    public static synchronized EmailOutbox getInstance(EmailService sender) {
+        if (sender == null) throw new IllegalArgumentException("EmailService is required.");
+        if (instance == null) {
+            instance = new EmailOutbox(OUTBOX_FILE, DEAD_LETTER_FILE, sender, WORKERS);
+            Runtime.getRuntime().addShutdownHook(new Thread(instance::shutdown, "email-outbox-shutdown"));
+        }
+        return instance;
+    }
+
+    // -------------------- Public API --------------------
+
+    // Saves the message for background delivery. Returns false if it could not be queued.
+    public boolean enqueue(String to, String subject, String body, File attachment) {
+        return enqueue(to, subject, body, attachment, EmailMetrics.MessageType.OTHER);
+    }
+
+    // type is only used for the email metrics
+    public boolean enqueue(String to, String subject, String body, File attachment,
+                           EmailMetrics.MessageType type) {
+        to = safe(to);
+        subject = safe(subject);
+        if (to.isEmpty() || subject.isEmpty()) return false;
+
+        OutboxMessage m = new OutboxMessage(
+                UUID.randomUUID().toString(), to, 0, System.currentTimeMillis(),
+                attachment == null ? "" : attachment.getAbsolutePath(),
+                subject, body == null ? "" : body, type == null ? EmailMetrics.MessageType.OTHER : type);
+
+        synchronized (this) {
+            if (!append(m.toLine())) return false;
+            pending.put(m.id, m);
+            compactIfNeeded();
+        }
+
+        try {
+            dispatcher.execute(this::dispatchDue);
+        } catch (Exception rejected) {
+            // shutting down: it is saved, next startup delivers it
+        }
+        return true;
+    }
+
+    // Deliver with another EmailService from the next attempt on (e.g. after a new login).
+    public void setSender(EmailService sender) {
+        if (sender == null) throw new IllegalArgumentException("EmailService is required.");
+        this.sender = sender;
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    // Stops workers; undelivered messages stay in the outbox file for next startup.
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        workers.shutdown();
+        try {
+            workers.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // -------------------- Delivery --------------------
+
+    private void dispatchDue() {
+        long now = System.currentTimeMillis();
+        List<OutboxMessage> due = new ArrayList<OutboxMessage>();
+
+        synchronized (this) {
+            for (OutboxMessage m : pending.values()) {
+                if (m.nextAttemptAt <= now && inFlight.add(m.id)) {
+                    due.add(m);
+                }
+            }
+        }
+
+        for (OutboxMessage m : due) {
+            try {
+                workers.execute(() -> deliver(m));
+            } catch (Exception rejected) {
+                // shutting down: leave it for next startup
+                synchronized (this) { inFlight.remove(m.id); }
+            }
+        }
+    }
+
+    private void deliver(OutboxMessage m) {
+        Exception failure = null;
+        try {
+            File attachment = m.attachment.isEmpty() ? null : new File(m.attachment);
+            sender.sendNow(m.to, m.subject, m.body, attachment, m.type);
+        } catch (Exception e) {
+            failure = e;
+        }
+
+        synchronized (this) {
+            inFlight.remove(m.id);
+
+            if (failure == null) {
+                pending.remove(m.id);
+                append(DONE + "|" + escape(m.id));
+                compactIfNeeded();
+                return;
+            }
+
+            int attempts = m.attempts + 1;
+            if (isPermanent(failure) || attempts >= MAX_ATTEMPTS) {
+                pending.remove(m.id);
+                append(DONE + "|" + escape(m.id));
+                appendDeadLetter(m.withAttempt(attempts, 0), failure);
+                System.out.println("Email outbox: gave up on " + m.to + " (" + failure.getMessage() + ")");
+            } else {
+                OutboxMessage retry = m.withAttempt(attempts, System.currentTimeMillis() + backoff(attempts));
+                pending.put(m.id, retry);
+                append(retry.toLine());
+            }
+            compactIfNeeded();
+        }
+    }
+
+    // bad address / missing file will never succeed, no point retrying
+    private boolean isPermanent(Exception e) {
+        return e instanceof AddressException
+                || e instanceof FileNotFoundException
+                || (e instanceof SendFailedException && ((SendFailedException) e).getInvalidAddresses() != null
+                        && ((SendFailedException) e).getInvalidAddresses().length > 0);
+    }
+
+    private long backoff(int attempts) {
+        long delay = BASE_DELAY_MS << Math.min(attempts - 1, 20);
+        delay = Math.min(delay, MAX_DELAY_MS);
+        // +/- 20% jitter so a failed burst doesn't retry in lockstep
+        long jitter = (long) (delay * 0.2 * (ThreadLocalRandom.current().nextDouble() * 2 - 1));
+        return delay + jitter;
+    }
+
+    // -------------------- Persistence --------------------
+
+    private synchronized void load() {
+        pending.clear();
+        records = 0;
+        loadFailed = false;
+        if (!outboxFile.exists()) return;
+
+        boolean legacy = false;
+        try (BufferedReader br = new BufferedReader(
+                new InputStreamReader(new FileInputStream(outboxFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.trim().isEmpty() || line.equals(HEADER)) continue;
+                if (line.equals(LEGACY_HEADER)) {
+                    legacy = true;
+                    continue;
+                }
+                records++;
+
+                if (line.startsWith(DONE + "|")) {
+                    pending.remove(unescape(line.substring(DONE.length() + 1)));
+                    continue;
+                }
+
+                // a torn line (crash mid-append) is skipped
+                OutboxMessage m = OutboxMessage.parse(line, legacy);
+                if (m != null) pending.put(m.id, m);
+            }
+        } catch (IOException e) {
+            loadFailed = true;
+            System.out.println("Email outbox read error: " + e.getMessage());
+            return;
+        }
+
+        // legacy header: appends must not go under it
+        if (legacy) compact();
+        else compactIfNeeded();
+    }
+
+    // one record: a message state or DONE|id (a missing trailing newline from a crash is fixed first)
+    private boolean append(String record) {
+        File parent = outboxFile.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) parent.mkdirs();
+
+        boolean newFile = !outboxFile.exists() || outboxFile.length() == 0;
+        try (Writer w = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(outboxFile, true), StandardCharsets.UTF_8))) {
+            if (newFile) w.write(HEADER + "\n");
+            else if (!endsWithNewline(outboxFile)) w.write("\n");
+            w.write(record + "\n");
+        } catch (IOException e) {
+            System.out.println("Email outbox write error: " + e.getMessage());
+            return false;
+        }
+        records++;
+        return true;
+    }
+
+    private void compactIfNeeded() {
+        if (records > 2 * pending.size() + COMPACT_SLACK) compact();
+    }
+
+    // rewrite through a temp file + atomic rename so a crash never leaves a half-written outbox
+    private boolean compact() {
+        if (loadFailed) return false;
+
+        File parent = outboxFile.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) parent.mkdirs();
+
+        File tmp = new File(outboxFile.getPath() + ".tmp");
+        try (BufferedWriter bw = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+            bw.write(HEADER);
+            bw.newLine();
+            for (OutboxMessage m : pending.values()) {
+                bw.write(m.toLine());
+                bw.newLine();
+            }
+        } catch (IOException e) {
+            System.out.println("Email outbox write error: " + e.getMessage());
+            return false;
+        }
+
+        try {
+            Files.move(tmp.toPath(), outboxFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println("Email outbox write error: " + e.getMessage());
+            return false;
+        }
+        records = pending.size();
+        return true;
+    }
+
+    private static boolean endsWithNewline(File f) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(f, "r")) {
+            raf.seek(raf.length() - 1);
+            return raf.read() == '\n';
+        }
+    }
+
+    private void appendDeadLetter(OutboxMessage m, Exception reason) {
+        try (BufferedWriter bw = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(deadLetterFile, true), StandardCharsets.UTF_8))) {
+            String why = reason.getClass().getSimpleName() + ": " + reason.getMessage();
+            bw.write(m.toLine() + "|" + LocalDateTime.now() + "|" + escape(why));
+            bw.newLine();
+        } catch (IOException e) {
+            System.out.println("Email dead-letter write error: " + e.getMessage());
+        }
+    }
+
+    // -------------------- Helpers --------------------
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+
+    private static String safe(String s) {
+        return (s == null) ? "" : s.trim();
+    }
+
+    // keeps one message per line: \ -> \\, | -> \p, newline -> \n, CR -> \r
+    static String escape(String s) {
+        if (s == null) return "";
+        StringBuilder sb = new StringBuilder(s.length() + 16);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\') sb.append("\\\\");
+            else if (c == '|') sb.append("\\p");
+            else if (c == '\n') sb.append("\\n");
+            else if (c == '\r') sb.append("\\r");
+            else sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    static String unescape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char n = s.charAt(++i);
+                if (n == 'p') sb.append('|');
+                else if (n == 'n') sb.append('\n');
+                else if (n == 'r') sb.append('\r');
+                else sb.append(n);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    // one queued email (immutable; retries replace it with a copy)
+    private static class OutboxMessage {
+        final String id;
+        final String to;
+        final int attempts;
+        final long nextAttemptAt;
+        final String attachment;
+        final String subject;
+        final String body;
+        final EmailMetrics.MessageType type;
+
+        OutboxMessage(String id, String to, int attempts, long nextAttemptAt,
+                      String attachment, String subject, String body, EmailMetrics.MessageType type) {
+            this.id = id;
+            this.to = to;
+            this.attempts = attempts;
+            this.nextAttemptAt = nextAttemptAt;
+            this.attachment = attachment;
+            this.subject = subject;
+            this.body = body;
+            this.type = type;
+        }
+
+        OutboxMessage withAttempt(int attempts, long nextAttemptAt) {
+            return new OutboxMessage(id, to, attempts, nextAttemptAt, attachment, subject, body, type);
+        }
+
+        String toLine() {
+            return escape(id) + "|" + escape(to) + "|" + attempts + "|" + nextAttemptAt + "|"
+                    + escape(attachment) + "|" + escape(subject) + "|" + escape(body) + "|" + type;
+        }
+
+        // legacy: file written before the Type column (type OTHER)
+        static OutboxMessage parse(String line, boolean legacy) {
+            String[] p = line.split("\\|", -1);
+            if (p.length < (legacy ? 7 : 8)) return null;
+
+            EmailMetrics.MessageType type = EmailMetrics.MessageType.OTHER;
+            if (!legacy) {
+                // torn inside the Type column: the record is incomplete
+                try {
+                    type = EmailMetrics.MessageType.valueOf(p[7].trim());
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            }
+
+            try {
+                return new OutboxMessage(unescape(p[0]), unescape(p[1]),
+                        Integer.parseInt(p[2].trim()), Long.parseLong(p[3].trim()),
+                        unescape(p[4]), unescape(p[5]), unescape(p[6]), type);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return (o instanceof OutboxMessage) && ((OutboxMessage) o).id.equals(id);
+        }
+
+        @Override
+        public int hashCode() {
+            return id.hashCode();
+        }
+    }
+}
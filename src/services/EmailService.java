@@ -1,17 +1,19 @@
 package services;
 
-import javax.activation.*;
 import javax.mail.*;
 import javax.mail.internet.*;
 
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 
 /**
  * EmailService
- * Handles sending emails for CRS using Gmail SMTP.
+ * Handles sending emails for CRS using Gmail SMTP (or any SMTP server given to the constructor).
  * Used for account creation, password reset, recovery plan and reports.
  */
 public class EmailService {
@@ -23,48 +25,230 @@ public class EmailService {
     private static final String SENDER_EMAIL = "crsjavaproject@gmail.com";
     private static final String APP_PASSWORD = "nebr psow nsbx kptq";
 
+    private final String senderEmail;
+    private final String password;
     private final Properties props;
 
+    // encoded attachments shared by all EmailService instances
+    private static final AttachmentCache ATTACHMENTS = new AttachmentCache();
+
+    // send counters + latencies for all EmailService instances
+    private static final EmailMetrics METRICS = new EmailMetrics();
+
+    // null = one connection per message (Transport.send)
+    private SmtpTransportPool pool;
+
+    // null = no background health checks
+    private SmtpHealthMonitor healthMonitor;
+
+    // null = the shared EmailOutbox
+    private volatile EmailOutbox outbox;
+
+    // Default: the CRS Gmail account
     public EmailService() {
+        this(SMTP_HOST, Integer.parseInt(SMTP_PORT), SENDER_EMAIL, APP_PASSWORD);
+    }
+
+    /*
+     * Custom SMTP server (e.g. a local stand-in for testing / benchmarks).
+     * Authentication is only used when a password is given;
+     * STARTTLS is used if the server offers it.
+     */
+    public EmailService(String host, int port, String senderEmail, String password) {
+        this.senderEmail = safe(senderEmail);
+        this.password = (password == null) ? "" : password;
+
         props = new Properties();
-        props.put("mail.smtp.auth", "true");
+        props.put("mail.smtp.auth", String.valueOf(!this.password.isEmpty()));
         props.put("mail.smtp.starttls.enable", "true");
-        props.put("mail.smtp.host", SMTP_HOST);
-        props.put("mail.smtp.port", SMTP_PORT);
+        props.put("mail.smtp.host", safe(host));
+        props.put("mail.smtp.port", String.valueOf(port));
     }
 
     // ---------------- Session Helper ----------------
 
     // Create email session with authentication
     private Session createSession() {
-        return Session.getInstance(props, new Authenticator() {
+        return createSession(props);
+    }
+
+    private Session createSession(Properties sessionProps) {
+        if (password.isEmpty()) return Session.getInstance(sessionProps);
+
+        return Session.getInstance(sessionProps, new Authenticator() {
             @Override
             protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication(SENDER_EMAIL, APP_PASSWORD);
+                return new PasswordAuthentication(senderEmail, password);
             }
         });
     }
 
+    public String getSmtpHost() {
+        return props.getProperty("mail.smtp.host");
+    }
+
+    public int getSmtpPort() {
+        return Integer.parseInt(props.getProperty("mail.smtp.port"));
+    }
+
+    public String getSenderEmail() {
+        return senderEmail;
+    }
+
+    public static AttachmentCache getAttachmentCache() {
+        return ATTACHMENTS;
+    }
+
+    public static EmailMetrics getMetrics() {
+        return METRICS;
+    }
+
+    // ---------------- Pooled Transport ----------------
+
+    /*
+     * Keep up to poolSize SMTP connections open and reuse them across messages
+     * (for bulk sends). Call disablePooling() when the batch is done.
+     */
+    public synchronized void enablePooling(int poolSize) {
+        disablePooling();
+        pool = new SmtpTransportPool(createSession(), poolSize);
+        pool.setMetrics(METRICS);
+    }
+
+    public synchronized void disablePooling() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    public synchronized boolean isPooling() {
+        return pool != null;
+    }
+
+    // Same server and account, but its own pool and no health monitor (e.g. a bulk run that
+    // pools without changing how this service, and the outbox using it, sends).
+    public EmailService copy() {
+        return new EmailService(getSmtpHost(), getSmtpPort(), senderEmail, password);
+    }
+
+    private synchronized SmtpTransportPool currentPool() {
+        return pool;
+    }
+
+    // Session used to build messages (shared one when pooling)
+    private Session sessionForMessage() {
+        SmtpTransportPool p = currentPool();
+        return (p != null) ? p.getSession() : createSession();
+    }
+
+    private void deliver(Message msg, Session session) throws MessagingException {
+        msg.saveChanges();
+
+        SmtpTransportPool p = currentPool();
+        if (p == null) {
+            // same as Transport.send, split so connect and send are timed separately
+            Transport t = session.getTransport("smtp");
+            long start = System.nanoTime();
+            t.connect();
+            METRICS.record(EmailMetrics.Latency.CONNECT, System.nanoTime() - start);
+            try {
+                sendTimed(t, msg);
+            } finally {
+                t.close();
+            }
+            return;
+        }
+
+        // one retry on a fresh connection if a pooled one turns out to be dead
+        for (int attempt = 1; ; attempt++) {
+            Transport t = p.borrow();
+            try {
+                sendTimed(t, msg);
+                p.release(t, false);
+                return;
+            } catch (SendFailedException e) {
+                // bad recipient: connection itself is fine
+                p.release(t, false);
+                throw e;
+            } catch (MessagingException | IllegalStateException e) {
+                p.release(t, true);
+                if (attempt >= 2) throw e;
+            }
+        }
+    }
+
+    private void sendTimed(Transport t, Message msg) throws MessagingException {
+        long start = System.nanoTime();
+        t.sendMessage(msg, msg.getAllRecipients());
+        METRICS.record(EmailMetrics.Latency.SEND, System.nanoTime() - start);
+    }
+
+    // ---------------- Health Check ----------------
+
+    /*
+     * Probe the SMTP server every intervalMillis in the background.
+     * getHealth() then returns the last result without touching the network.
+     */
+    public synchronized void startHealthMonitor(long intervalMillis) {
+        stopHealthMonitor();
+        healthMonitor = new SmtpHealthMonitor(this, intervalMillis, 5000);
+        healthMonitor.start();
+    }
+
+    public synchronized void stopHealthMonitor() {
+        if (healthMonitor != null) {
+            healthMonitor.stop();
+            healthMonitor = null;
+        }
+    }
+
+    // Cached status (UNKNOWN if the monitor is not running)
+    public synchronized SmtpHealthMonitor.Status getHealth() {
+        return (healthMonitor == null)
+                ? SmtpHealthMonitor.NOT_CHECKED
+                : healthMonitor.getStatus();
+    }
+
+    // Fresh probe in the background; the result shows up in getHealth()
+    public synchronized void requestHealthCheck() {
+        if (healthMonitor != null) healthMonitor.checkNow();
+    }
+
+    // Connect + handshake (+ AUTH) with short timeouts, then disconnect. No email is sent.
+    void probe(int timeoutMillis) throws MessagingException {
+        Properties probeProps = new Properties();
+        probeProps.putAll(props);
+        probeProps.put("mail.smtp.connectiontimeout", String.valueOf(timeoutMillis));
+        probeProps.put("mail.smtp.timeout", String.valueOf(timeoutMillis));
+        probeProps.put("mail.smtp.writetimeout", String.valueOf(timeoutMillis));
+
+        Transport t = createSession(probeProps).getTransport("smtp");
+        try {
+            t.connect();
+        } finally {
+            try {
+                t.close();
+            } catch (MessagingException ignored) {
+                // already gone
+            }
+        }
+    }
+
     // ---------------- Basic Email ----------------
 
     public boolean sendEmail(String to, String subject, String body) {
+        return sendEmail(to, subject, body, EmailMetrics.MessageType.OTHER);
+    }
+
+    boolean sendEmail(String to, String subject, String body, EmailMetrics.MessageType type) {
         to = safe(to);
         subject = safe(subject);
-        body = (body == null) ? "" : body;
 
         if (to.isEmpty() || subject.isEmpty()) return false;
 
         try {
-            Session session = createSession();
-
-            Message msg = new MimeMessage(session);
-            msg.setFrom(new InternetAddress(SENDER_EMAIL));
-            msg.setRecipients(Message.RecipientType.TO, InternetAddress.parse(to));
-            msg.setSubject(subject);
-            msg.setText(body);
-            msg.setSentDate(new Date());
-
-            Transport.send(msg);
+            sendNow(to, subject, body, null, type);
             return true;
 
         } catch (Exception e) {
@@ -76,114 +260,168 @@ public class EmailService {
     // ---------------- Email with Attachment ----------------
 
     public boolean sendEmailWithAttachment(String to, String subject, String body, File attachment) {
+        return sendEmailWithAttachment(to, subject, body, attachment, EmailMetrics.MessageType.OTHER);
+    }
+
+    private boolean sendEmailWithAttachment(String to, String subject, String body, File attachment,
+                                            EmailMetrics.MessageType type) {
         to = safe(to);
         subject = safe(subject);
-        body = (body == null) ? "" : body;
 
         if (to.isEmpty() || subject.isEmpty()) return false;
         if (attachment == null || !attachment.exists()) return false;
 
         try {
-            Session session = createSession();
+            sendNow(to, subject, body, attachment, type);
+            return true;
 
-            Message msg = new MimeMessage(session);
-            msg.setFrom(new InternetAddress(SENDER_EMAIL));
-            msg.setRecipients(Message.RecipientType.TO, InternetAddress.parse(to));
-            msg.setSubject(subject);
-            msg.setSentDate(new Date());
+        } catch (Exception e) {
+            System.out.println("Email attachment error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Builds + sends one message and lets failures propagate (used by the outbox to decide on retries).
+    void sendNow(String to, String subject, String body, File attachment,
+                 EmailMetrics.MessageType type) throws Exception {
+        try {
+            buildAndDeliver(to, subject, body, attachment);
+            METRICS.messageSent(type);
+        } catch (Exception e) {
+            METRICS.messageFailed(type, e);
+            throw e;
+        }
+    }
+
+    private void buildAndDeliver(String to, String subject, String body, File attachment) throws Exception {
+        body = (body == null) ? "" : body;
+
+        Session session = sessionForMessage();
+
+        Message msg = new MimeMessage(session);
+        msg.setFrom(new InternetAddress(senderEmail));
+        msg.setRecipients(Message.RecipientType.TO, InternetAddress.parse(to));
+        msg.setSubject(subject);
+        msg.setSentDate(new Date());
+
+        if (attachment == null) {
+            msg.setText(body);
+        } else {
+            if (!attachment.exists()) {
+                throw new FileNotFoundException("Attachment not found: " + attachment.getPath());
+            }
 
             MimeBodyPart textPart = new MimeBodyPart();
             textPart.setText(body);
 
-            MimeBodyPart filePart = new MimeBodyPart();
-            FileDataSource source = new FileDataSource(attachment);
-            filePart.setDataHandler(new DataHandler(source));
-            filePart.setFileName(attachment.getName());
+            // read + base64 once per file version, shared across messages
+            MimeBodyPart filePart = ATTACHMENTS.bodyPartFor(attachment);
 
             Multipart multipart = new MimeMultipart();
             multipart.addBodyPart(textPart);
             multipart.addBodyPart(filePart);
 
             msg.setContent(multipart);
+        }
 
-            Transport.send(msg);
-            return true;
+        deliver(msg, session);
+    }
 
-        } catch (Exception e) {
-            System.out.println("Email attachment error: " + e.getMessage());
-            return false;
-        }
+    // ---------------- Outbox (async) ----------------
+
+    // Queue* methods use this outbox instead of the shared one (e.g. a test outbox).
+    public void setOutbox(EmailOutbox outbox) {
+        this.outbox = outbox;
+    }
+
+    // shared outbox, created with this service as its sender if nothing started it yet
+    private EmailOutbox outbox() {
+        EmailOutbox o = outbox;
+        return (o != null) ? o : EmailOutbox.getInstance(this);
+    }
+
+    // Queue instead of sending: returns as soon as the message is saved to the outbox.
+    public boolean queuePerformanceReportWithAttachment(String to, String studentName,
+                                                        String semester, double cgpa, File pdfFile) {
+        if (pdfFile == null || !pdfFile.exists()) return false;
+
+        EmailTemplate t = EmailTemplates.get(EmailTemplates.PERFORMANCE_REPORT_ATTACHMENT);
+        Map<String, String> v = performanceReportValues(studentName, semester, cgpa);
+        return outbox().enqueue(to, t.renderSubject(v), t.renderBody(v), pdfFile,
+                EmailMetrics.MessageType.REPORT);
+    }
+
+    public boolean queueRecoveryPlanEmail(String email, String studentName,
+                                          String courseId, String plan) {
+        EmailTemplate t = EmailTemplates.get(EmailTemplates.RECOVERY_PLAN);
+        Map<String, String> v = recoveryPlanValues(studentName, courseId, plan);
+        return outbox().enqueue(email, t.renderSubject(v), t.renderBody(v), null,
+                EmailMetrics.MessageType.RECOVERY_PLAN);
     }
 
     // ---------------- Project Required Emails ----------------
+    // Wording lives in data/email_templates (see EmailTemplates)
 
     // Account creation email
     public boolean sendAccountCreationEmail(String email, String username, String tempPassword) {
-        String body =
-                "Hello " + username + ",\n\n" +
-                "Your CRS account has been created.\n\n" +
-                "Username: " + username + "\n" +
-                "Temporary Password: " + tempPassword + "\n\n" +
-                "Please change it after login.\n\n" +
-                "CRS System";
-
-        return sendEmail(email, "CRS - Account Created", body);
+        return sendTemplate(email, EmailTemplates.ACCOUNT_CREATED,
+                values("username", username, "password", tempPassword));
     }
 
     // Password reset email
     public boolean sendPasswordResetEmail(String email, String username, String newPassword) {
-        String body =
-                "Hello " + username + ",\n\n" +
-                "Your password has been reset.\n\n" +
-                "New Password: " + newPassword + "\n\n" +
-                "CRS System";
-
-        return sendEmail(email, "CRS - Password Reset", body);
+        return sendTemplate(email, EmailTemplates.PASSWORD_RESET,
+                values("username", username, "password", newPassword));
     }
 
     // Course recovery plan email
     public boolean sendRecoveryPlanEmail(String email, String studentName,
                                          String courseId, String plan) {
-        String body =
-                "Hello " + studentName + ",\n\n" +
-                "A recovery plan has been assigned.\n\n" +
-                "Course: " + courseId + "\n\n" +
-                plan + "\n\n" +
-                "CRS System";
-
-        return sendEmail(email, "CRS - Recovery Plan (" + courseId + ")", body);
+        return sendTemplate(email, EmailTemplates.RECOVERY_PLAN, recoveryPlanValues(studentName, courseId, plan));
     }
 
     // Academic performance email (no attachment)
     public boolean sendPerformanceReportEmail(String email, String studentName,
                                               String semester, double cgpa) {
-        String body =
-                "Hello " + studentName + ",\n\n" +
-                "Semester: " + semester + "\n" +
-                "CGPA: " + String.format("%.2f", cgpa) + "\n\n" +
-                "CRS System";
-
-        return sendEmail(email, "CRS - Academic Report (" + semester + ")", body);
+        return sendTemplate(email, EmailTemplates.PERFORMANCE_REPORT,
+                performanceReportValues(studentName, semester, cgpa));
     }
 
     // Academic performance email with PDF
     public boolean sendPerformanceReportWithAttachment(String to, String studentName,
                                                        String semester, double cgpa, File pdfFile) {
-        String body =
-                "Hello " + studentName + ",\n\n" +
-                "Please find attached your academic performance report.\n\n" +
-                "Semester: " + semester + "\n" +
-                "CGPA: " + String.format("%.2f", cgpa) + "\n\n" +
-                "CRS System";
+        EmailTemplate t = EmailTemplates.get(EmailTemplates.PERFORMANCE_REPORT_ATTACHMENT);
+        Map<String, String> v = performanceReportValues(studentName, semester, cgpa);
+        return sendEmailWithAttachment(to, t.renderSubject(v), t.renderBody(v), pdfFile,
+                EmailMetrics.MessageType.REPORT);
+    }
 
-        String subject = "CRS - Academic Performance Report (" + semester + ")";
-        return sendEmailWithAttachment(to, subject, body, pdfFile);
+    private boolean sendTemplate(String to, String templateName, Map<String, String> v) {
+        EmailTemplate t = EmailTemplates.get(templateName);
+        return sendEmail(to, t.renderSubject(v), t.renderBody(v), EmailMetrics.MessageType.forTemplate(templateName));
+    }
+
+    private Map<String, String> recoveryPlanValues(String studentName, String courseId, String plan) {
+        return values("studentName", studentName, "courseId", courseId, "plan", plan);
+    }
+
+    private Map<String, String> performanceReportValues(String studentName, String semester, double cgpa) {
+        return values("studentName", studentName, "semester", semester, "cgpa", String.format("%.2f", cgpa));
+    }
+
+    // values("key1", v1, "key2", v2, ...)
+    private static Map<String, String> values(String... keyValues) {
+        Map<String, String> map = new HashMap<String, String>(keyValues.length);
+        for (int i = 0; i + 1 < keyValues.length; i += 2) {
+            map.put(keyValues[i], keyValues[i + 1] == null ? "" : keyValues[i + 1]);
+        }
+        return map;
     }
 
     // Test email function
     public boolean testConnection() {
         return sendEmail(
-                SENDER_EMAIL,
+                senderEmail,
                 "CRS Test Email",
                 "If you received this email, the EmailService is working."
         );
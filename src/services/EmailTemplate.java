@@ -0,0 +1,153 @@
+package services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * EmailTemplate
+ * A subject + body template parsed ONCE into literal / placeholder segments,
+ * so rendering is a single append pass (no regex or repeated String.replace).
+ *
+ * Placeholders look like {studentName}. Unknown or missing values render as "".
+ * Write {{ for a literal "{".
+ */
+public class EmailTemplate {
+
+    // one builder per thread, reused for every render on that thread
+    private static final ThreadLocal<StringBuilder> BUFFER =
+            ThreadLocal.withInitial(() -> new StringBuilder(512));
+
+    private final String[] subjectParts;
+    private final boolean[] subjectIsKey;
+    private final String[] bodyParts;
+    private final boolean[] bodyIsKey;
+
+    private EmailTemplate(List<String> subjectParts, List<Boolean> subjectKeys,
+                          List<String> bodyParts, List<Boolean> bodyKeys) {
+        this.subjectParts = subjectParts.toArray(new String[0]);
+        this.subjectIsKey = toArray(subjectKeys);
+        this.bodyParts = bodyParts.toArray(new String[0]);
+        this.bodyIsKey = toArray(bodyKeys);
+    }
+
+    // Parses subject + body text into segments.
+    public static EmailTemplate compile(String subject, String body) {
+        List<String> sp = new ArrayList<String>();
+        List<Boolean> sk = new ArrayList<Boolean>();
+        List<String> bp = new ArrayList<String>();
+        List<Boolean> bk = new ArrayList<Boolean>();
+
+        parse(subject == null ? "" : subject, sp, sk);
+        parse(body == null ? "" : body, bp, bk);
+        return new EmailTemplate(sp, sk, bp, bk);
+    }
+
+    /*
+     * File layout:
+     * Subject: CRS - Recovery Plan ({courseId})
+     * (blank line)
+     * body...
+     */
+    public static EmailTemplate parseFile(String text) {
+        String t = (text == null) ? "" : text.replace("\r\n", "\n");
+
+        String subject = "";
+        String body = t;
+        if (t.regionMatches(true, 0, "Subject:", 0, 8)) {
+            int nl = t.indexOf('\n');
+            subject = (nl < 0 ? t.substring(8) : t.substring(8, nl)).trim();
+            body = (nl < 0) ? "" : t.substring(nl + 1);
+            if (body.startsWith("\n")) body = body.substring(1);
+        }
+
+        // files usually end with a newline the old concatenated bodies didn't have
+        if (body.endsWith("\n")) body = body.substring(0, body.length() - 1);
+
+        return compile(subject, body);
+    }
+
+    // ---------------- Rendering ----------------
+
+    public String renderSubject(Map<String, String> values) {
+        return render(subjectParts, subjectIsKey, values);
+    }
+
+    public String renderBody(Map<String, String> values) {
+        return render(bodyParts, bodyIsKey, values);
+    }
+
+    private static String render(String[] parts, boolean[] isKey, Map<String, String> values) {
+        StringBuilder sb = BUFFER.get();
+        sb.setLength(0);
+
+        for (int i = 0; i < parts.length; i++) {
+            if (isKey[i]) {
+                String v = (values == null) ? null : values.get(parts[i]);
+                if (v != null) sb.append(v);
+            } else {
+                sb.append(parts[i]);
+            }
+        }
+
+        String out = sb.toString();
+
+        // don't let one huge message pin a big buffer on the thread
+        if (sb.capacity() > 64 * 1024) BUFFER.remove();
+        return out;
+    }
+
+    // ---------------- Parsing ----------------
+
+    private static void parse(String text, List<String> parts, List<Boolean> keys) {
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+
+        while (i < text.length()) {
+            char c = text.charAt(i);
+
+            if (c == '{' && i + 1 < text.length() && text.charAt(i + 1) == '{') {
+                literal.append('{');
+                i += 2;
+                continue;
+            }
+
+            if (c == '{') {
+                int end = text.indexOf('}', i + 1);
+                if (end > i + 1 && isKeyName(text, i + 1, end)) {
+                    if (literal.length() > 0) {
+                        parts.add(literal.toString());
+                        keys.add(Boolean.FALSE);
+                        literal.setLength(0);
+                    }
+                    parts.add(text.substring(i + 1, end));
+                    keys.add(Boolean.TRUE);
+                    i = end + 1;
+                    continue;
+                }
+            }
+
+            literal.append(c);
+            i++;
+        }
+
+        if (literal.length() > 0) {
+            parts.add(literal.toString());
+            keys.add(Boolean.FALSE);
+        }
+    }
+
+    private static boolean isKeyName(String text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_') return false;
+        }
+        return true;
+    }
+
+    private static boolean[] toArray(List<Boolean> list) {
+        boolean[] a = new boolean[list.size()];
+        for (int i = 0; i < a.length; i++) a[i] = list.get(i);
+        return a;
+    }
+}
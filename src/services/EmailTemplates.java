@@ -0,0 +1,117 @@
+package services;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * EmailTemplates
+ * Loads the system email templates from data/email_templates/<name>.txt,
+ * compiles each one once and caches it. If a file is missing the built-in
+ * wording below is used, so emails still go out.
+ */
+public class EmailTemplates {
+
+    public static final String ACCOUNT_CREATED = "account_created";
+    public static final String PASSWORD_RESET = "password_reset";
+    public static final String RECOVERY_PLAN = "recovery_plan";
+    public static final String PERFORMANCE_REPORT = "performance_report";
+    public static final String PERFORMANCE_REPORT_ATTACHMENT = "performance_report_attachment";
+    public static final String NOT_ELIGIBLE = "not_eligible";
+
+    private static final String TEMPLATE_FOLDER = "data/email_templates";
+
+    private static final Map<String, String> DEFAULTS;
+
+    static {
+        Map<String, String> d = new HashMap<String, String>();
+
+        d.put(ACCOUNT_CREATED,
+                "Subject: CRS - Account Created\n\n" +
+                "Hello {username},\n\n" +
+                "Your CRS account has been created.\n\n" +
+                "Username: {username}\n" +
+                "Temporary Password: {password}\n\n" +
+                "Please change it after login.\n\n" +
+                "CRS System");
+
+        d.put(PASSWORD_RESET,
+                "Subject: CRS - Password Reset\n\n" +
+                "Hello {username},\n\n" +
+                "Your password has been reset.\n\n" +
+                "New Password: {password}\n\n" +
+                "CRS System");
+
+        d.put(RECOVERY_PLAN,
+                "Subject: CRS - Recovery Plan ({courseId})\n\n" +
+                "Hello {studentName},\n\n" +
+                "A recovery plan has been assigned.\n\n" +
+                "Course: {courseId}\n\n" +
+                "{plan}\n\n" +
+                "CRS System");
+
+        d.put(PERFORMANCE_REPORT,
+                "Subject: CRS - Academic Report ({semester})\n\n" +
+                "Hello {studentName},\n\n" +
+                "Semester: {semester}\n" +
+                "CGPA: {cgpa}\n\n" +
+                "CRS System");
+
+        d.put(PERFORMANCE_REPORT_ATTACHMENT,
+                "Subject: CRS - Academic Performance Report ({semester})\n\n" +
+                "Hello {studentName},\n\n" +
+                "Please find attached your academic performance report.\n\n" +
+                "Semester: {semester}\n" +
+                "CGPA: {cgpa}\n\n" +
+                "CRS System");
+
+        d.put(NOT_ELIGIBLE,
+                "Subject: CRS - Progression Eligibility\n\n" +
+                "Hello {studentName},\n\n" +
+                "You are currently not eligible to progress to the next level.\n\n" +
+                "Reason: {reason}\n\n" +
+                "Please contact your academic advisor.\n\n" +
+                "CRS System");
+
+        DEFAULTS = Collections.unmodifiableMap(d);
+    }
+
+    private static final Map<String, EmailTemplate> CACHE = new ConcurrentHashMap<String, EmailTemplate>();
+
+    private EmailTemplates() {
+    }
+
+    // Compiled template by name (file first, then built-in default).
+    public static EmailTemplate get(String name) {
+        return CACHE.computeIfAbsent(name, EmailTemplates::load);
+    }
+
+    // Drop the cache so edited template files are picked up.
+    public static void reload() {
+        CACHE.clear();
+    }
+
+    private static EmailTemplate load(String name) {
+        File file = new File(TEMPLATE_FOLDER, name + ".txt");
+
+        if (file.exists()) {
+            try {
+                String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+                return EmailTemplate.parseFile(text);
+            } catch (IOException e) {
+                System.out.println("Email template read error (" + name + "): " + e.getMessage());
+            }
+        }
+
+        String fallback = DEFAULTS.get(name);
+        if (fallback == null) {
+            throw new IllegalArgumentException("Unknown email template: " + name);
+        }
+        return EmailTemplate.parseFile(fallback);
+    }
+}
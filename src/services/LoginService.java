@@ -2,83 +2,286 @@ package services;
 
 import model.Admin;
 import model.User;
+import repository.UserRepository;
 
-import java.io.*;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * LoginService (Singleton)
- * - login/logout
+ * - login/logout (desktop session) + token sessions for other clients (see SessionManager)
  * - admin-only user management
- * - saves users to file
- * - logs login/logout with binary timestamp
+ * - saves users to file (one record per change, see UserRepository)
+ * - logs login/logout to a fixed-width binary log, rotated into gzip archives (see AuthLogStore)
+ * - failed logins are throttled per username and per source (see LoginThrottle)
+ * - passwords are stored as salted PBKDF2 hashes (see PasswordHasher); recent logins
+ *   are remembered briefly so repeat logins skip the hash (see CredentialCache)
  */
 public class LoginService {
 
     private static LoginService instance;
 
-    private List<User> users;
-    private User currentUser;
+    private List<User> users;   // guarded by "this"
 
-    private static final String USERS_FILE = "users.dat";
+    // desktop session (LoginFrame / MainApp); other clients hold their own UserSession
+    private volatile UserSession currentSession;
+
+    // lowercase username -> user, kept in sync with users (findUser is O(1))
+    private final Map<String, User> usersByName = new ConcurrentHashMap<>();
+
+    private static final String USERS_FILE = "users.txt";
+    private static final String LEGACY_USERS_FILE = "users.dat";   // migrated on first start
     private static final String AUTH_LOG_FILE = "auth_log.dat";
+    private static final String AUTH_LOG_ARCHIVE = "auth_log_archive";
+
+    // roll at 4 MB (~43k events) or daily, keep archives for a year
+    private static final long AUTH_LOG_MAX_BYTES = 4L * 1024 * 1024;
+    private static final long AUTH_LOG_RETENTION_MS = 365L * 24 * 60 * 60 * 1000;
+
+    // sessions opened with openSession() close after 30 min without use
+    private static final long SESSION_IDLE_TIMEOUT_MS = 30L * 60 * 1000;
+    private static final long SESSION_SWEEP_MS = 60L * 1000;
+
+    // 5 failures per username (20 per source) within 15 min locks it for 15 min
+    private static final int THROTTLE_WINDOW_MIN = 15;
+    private static final int THROTTLE_MAX_USER_FAILURES = 5;
+    private static final int THROTTLE_MAX_SOURCE_FAILURES = 20;
+    private static final long THROTTLE_LOCKOUT_MS = 15L * 60 * 1000;
+
+    // a verified login is remembered for 5 min (up to 10k users)
+    private static final long CREDENTIAL_CACHE_TTL_MS = 5L * 60 * 1000;
+    private static final int CREDENTIAL_CACHE_MAX = 10_000;
+
+    // source used by login()/openSession() without one; every desktop user shares it,
+    // so only the per-username limit applies to it (a source lock would shut out the admins too)
+    public static final String DESKTOP_SOURCE = "desktop";
+
+    private final UserRepository userRepo = new UserRepository(USERS_FILE, LEGACY_USERS_FILE);
+
+    // fixed-width binary log + gzip archives; events are written in the background
+    private final AuthLogStore authLog = new AuthLogStore(AUTH_LOG_FILE, AUTH_LOG_ARCHIVE,
+            AUTH_LOG_MAX_BYTES, true, AUTH_LOG_RETENTION_MS);
+
+    private final SessionManager sessions = new SessionManager(SESSION_IDLE_TIMEOUT_MS, SESSION_SWEEP_MS,
+            s -> logAuthEvent(s.getUsername(), "TIMEOUT"));
+
+    private final LoginThrottle throttle = new LoginThrottle(THROTTLE_WINDOW_MIN,
+            THROTTLE_MAX_USER_FAILURES, THROTTLE_MAX_SOURCE_FAILURES, THROTTLE_LOCKOUT_MS);
+
+    private volatile PasswordHasher hasher = new PasswordHasher();
+    private final CredentialCache credentialCache = new CredentialCache(CREDENTIAL_CACHE_TTL_MS, CREDENTIAL_CACHE_MAX);
 
     private LoginService() {
         users = new ArrayList<>();
         loadUsers();
+        rebuildIndex();
+        migratePlaintextPasswords();
         ensureDefaultAdmin();
     }
 
-    public static LoginService getInstance() {
+    public static synchronized LoginService getInstance() {
         if (instance == null) instance = new LoginService();
         return instance;
     }
 
     // -------------------- Authentication --------------------
 
+    // Desktop login: becomes the current session (replacing any previous one).
     public boolean login(String username, String password) {
+        UserSession s = authenticate(username, password, DESKTOP_SOURCE, false);
+        if (s == null) return false;
+
+        UserSession previous = currentSession;
+        currentSession = s;
+        if (previous != null) closeSession(previous);
+        return true;
+    }
+
+    public void logout() {
+        UserSession s = currentSession;
+        currentSession = null;
+        if (s != null) closeSession(s);
+    }
+
+    public User getCurrentUser() {
+        UserSession s = currentSession;
+        return (s == null) ? null : s.getUser();
+    }
+
+    public UserSession getCurrentSession() {
+        return currentSession;
+    }
+
+    public boolean isLoggedIn() {
+        return currentSession != null;
+    }
+
+    public boolean isAdmin() {
+        return isAdmin(currentSession);
+    }
+
+    // -------------------- Sessions --------------------
+
+    // Logs in another client; returns its session (token in getToken()) or null.
+    public UserSession openSession(String username, String password) {
+        return openSession(username, password, DESKTOP_SOURCE);
+    }
+
+    // source = where the attempt comes from (terminal name / client address), used for throttling
+    public UserSession openSession(String username, String password, String source) {
+        return authenticate(username, password, source, true);
+    }
+
+    // Live session for the token (refreshes its idle timer), or null if unknown / expired.
+    public UserSession getSession(String token) {
+        return sessions.get(token);
+    }
+
+    public void closeSession(String token) {
+        UserSession s = sessions.close(token);
+        if (s != null) logAuthEvent(s.getUsername(), "LOGOUT");
+    }
+
+    public void closeSession(UserSession session) {
+        if (session != null) closeSession(session.getToken());
+    }
+
+    public List<UserSession> getActiveSessions() {
+        return sessions.getActive();
+    }
+
+    // Role check for one session: still open, account active, role ADMIN.
+    public boolean isAdmin(UserSession session) {
+        return sessions.isActive(session) && session.isAdmin();
+    }
+
+    private UserSession authenticate(String username, String password, String source, boolean expiresWhenIdle) {
         username = clean(username);
         password = clean(password);
 
-        if (username.isEmpty() || password.isEmpty()) return false;
+        if (username.isEmpty() || password.isEmpty()) return null;
 
-        User user = findUser(username);
-        if (user == null) return false;
+        // locked out: reject before the user lookup, nothing is logged
+        if (throttle.isBlocked(username, throttleSource(source))) return null;
 
-        if (!user.isActive()) return false;
-        if (!password.equals(user.getPassword())) return false;
+        User user = findUser(username);
+        if (user == null || !user.isActive() || !checkPassword(user, password)) {
+            throttle.recordFailure(username, throttleSource(source));
+            logAuthEvent(username, "FAILED");
+            return null;
+        }
 
-        currentUser = user;
+        throttle.recordSuccess(username);
+        UserSession s = sessions.open(user, expiresWhenIdle);
         logAuthEvent(username, "LOGIN");
+        return s;
+    }
+
+    // cache first; PBKDF2 only when this password wasn't verified recently
+    private boolean checkPassword(User user, String password) {
+        String stored = user.getPassword();
+        if (credentialCache.isVerified(user.getUsername(), password, stored)) return true;
+
+        PasswordHasher h = hasher;
+        boolean ok = PasswordHasher.isHashed(stored) ? h.verify(password, stored) : password.equals(stored);
+        if (!ok) return false;
+
+        // plaintext left over, or hashed with an old iteration count
+        if (h.needsRehash(stored)) stored = rehash(user, stored, password);
+
+        credentialCache.remember(user.getUsername(), password, stored);
         return true;
     }
 
-    public void logout() {
-        if (currentUser != null) {
-            logAuthEvent(currentUser.getUsername(), "LOGOUT");
-            currentUser = null;
-        }
+    private synchronized String rehash(User user, String expected, String password) {
+        // changed meanwhile (admin reset): keep the newer value
+        if (!expected.equals(user.getPassword())) return user.getPassword();
+
+        user.setPassword(hasher.hash(password));
+        userRepo.save(user);
+        return user.getPassword();
     }
 
-    public User getCurrentUser() {
-        return currentUser;
+    // -------------------- Password Hashing --------------------
+
+    // New hashes use this many PBKDF2 iterations; older hashes are upgraded on the user's next login.
+    public void setHashIterations(int iterations) {
+        hasher = new PasswordHasher(iterations);
+        credentialCache.clear();   // next login of each user goes through (and upgrades) the hash
     }
 
-    public boolean isLoggedIn() {
-        return currentUser != null;
+    public int getHashIterations() {
+        return hasher.getIterations();
     }
 
-    public boolean isAdmin() {
-        return currentUser != null && currentUser.hasRole("ADMIN");
+    // -------------------- Lockouts --------------------
+
+    // ms until this username (from the desktop) may try again, 0 if not locked
+    public long getLockoutRemaining(String username) {
+        return getLockoutRemaining(username, DESKTOP_SOURCE);
+    }
+
+    public long getLockoutRemaining(String username, String source) {
+        return throttle.getRemainingLockout(clean(username), throttleSource(source));
+    }
+
+    // null = no per-source limit
+    private String throttleSource(String source) {
+        return DESKTOP_SOURCE.equalsIgnoreCase(clean(source)) ? null : source;
+    }
+
+    public boolean isLockedOut(String username) {
+        return throttle.isUserLocked(clean(username));
+    }
+
+    // locked usernames and sources (admin only, empty otherwise)
+    public List<LoginThrottle.Lockout> getLockouts() {
+        return getLockouts(currentSession);
+    }
+
+    public List<LoginThrottle.Lockout> getLockouts(UserSession actor) {
+        if (!isAdmin(actor)) return new ArrayList<>();
+        return throttle.getLockouts();
+    }
+
+    public boolean unlockUser(String username) {
+        return unlockUser(currentSession, username);
+    }
+
+    public boolean unlockUser(UserSession actor, String username) {
+        if (!isAdmin(actor)) return false;
+        throttle.unlockUser(clean(username));
+        return true;
+    }
+
+    public boolean unlockAll() {
+        return unlockAll(currentSession);
+    }
+
+    public boolean unlockAll(UserSession actor) {
+        if (!isAdmin(actor)) return false;
+        throttle.unlockAll();
+        return true;
     }
 
     // -------------------- User Management (Admin only) --------------------
+    // Each operation checks the acting session; the overloads without one use the desktop session.
 
     public boolean addUser(String username, String password, String role, String email) {
-        if (!isAdmin()) return false;
+        return addUser(currentSession, username, password, role, email);
+    }
+
+    // old calls still work
+    public boolean addUser(String username, String password, String role) {
+        return addUser(username, password, role, "");
+    }
+
+    public synchronized boolean addUser(UserSession actor, String username, String password,
+                                        String role, String email) {
+        if (!isAdmin(actor)) return false;
 
         username = clean(username);
         password = clean(password);
@@ -89,24 +292,29 @@ public class LoginService {
         if (findUser(username) != null) return false; // prevent duplicate
 
         User newUser;
+        String hash = hasher.hash(password);
         if ("ADMIN".equals(role)) {
-            newUser = new Admin(username, password, email);
+            newUser = new Admin(username, hash, email);
         } else {
-            newUser = new User(username, password, role, email);
+            newUser = new User(username, hash, role, email);
         }
 
-        users.add(newUser);
-        saveUsers();
+        addToList(newUser);
+        userRepo.save(newUser);
         return true;
     }
 
-    // old calls still work
-    public boolean addUser(String username, String password, String role) {
-        return addUser(username, password, role, "");
+    public boolean updateUser(String username, String newPassword, String newRole, String newEmail) {
+        return updateUser(currentSession, username, newPassword, newRole, newEmail);
     }
 
-    public boolean updateUser(String username, String newPassword, String newRole, String newEmail) {
-        if (!isAdmin()) return false;
+    public boolean updateUser(String username, String newPassword, String newRole) {
+        return updateUser(username, newPassword, newRole, "");
+    }
+
+    public synchronized boolean updateUser(UserSession actor, String username, String newPassword,
+                                           String newRole, String newEmail) {
+        if (!isAdmin(actor)) return false;
 
         username = clean(username);
         newPassword = clean(newPassword);
@@ -116,49 +324,65 @@ public class LoginService {
         User user = findUser(username);
         if (user == null) return false;
 
-        if (!newPassword.isEmpty()) user.setPassword(newPassword);
+        if (!newPassword.isEmpty()) {
+            user.setPassword(hasher.hash(newPassword));
+            credentialCache.invalidate(username);
+        }
         if (!newRole.isEmpty()) user.setRole(newRole);
         if (!newEmail.isEmpty()) user.setEmail(newEmail);
 
-        saveUsers();
+        userRepo.save(user);
         return true;
     }
 
-    public boolean updateUser(String username, String newPassword, String newRole) {
-        return updateUser(username, newPassword, newRole, "");
+    public boolean deactivateUser(String username) {
+        return deactivateUser(currentSession, username);
     }
 
-    public boolean deactivateUser(String username) {
-        if (!isAdmin()) return false;
+    public synchronized boolean deactivateUser(UserSession actor, String username) {
+        if (!isAdmin(actor)) return false;
 
         username = clean(username);
         User user = findUser(username);
         if (user == null) return false;
 
         // don't let admin deactivate themselves
-        if (currentUser != null && username.equalsIgnoreCase(currentUser.getUsername())) {
+        if (username.equalsIgnoreCase(actor.getUsername())) {
             return false;
         }
 
         user.deactivate();
-        saveUsers();
+        userRepo.save(user);
+
+        // a deactivated account loses its open sessions
+        for (UserSession s : sessions.closeAll(username)) {
+            logAuthEvent(s.getUsername(), "LOGOUT");
+        }
         return true;
     }
 
     public boolean activateUser(String username) {
-        if (!isAdmin()) return false;
+        return activateUser(currentSession, username);
+    }
+
+    public synchronized boolean activateUser(UserSession actor, String username) {
+        if (!isAdmin(actor)) return false;
 
         username = clean(username);
         User user = findUser(username);
         if (user == null) return false;
 
         user.activate();
-        saveUsers();
+        userRepo.save(user);
         return true;
     }
 
     public boolean resetPassword(String username, String newPassword) {
-        if (!isAdmin()) return false;
+        return resetPassword(currentSession, username, newPassword);
+    }
+
+    public synchronized boolean resetPassword(UserSession actor, String username, String newPassword) {
+        if (!isAdmin(actor)) return false;
 
         username = clean(username);
         newPassword = clean(newPassword);
@@ -168,12 +392,14 @@ public class LoginService {
         User user = findUser(username);
         if (user == null) return false;
 
-        user.setPassword(newPassword);
-        saveUsers();
+        user.setPassword(hasher.hash(newPassword));
+        userRepo.save(user);
+        credentialCache.invalidate(username);
+        throttle.unlockUser(username);   // new password, fresh attempts
         return true;
     }
 
-    public String recoverPassword(String username) {
+    public synchronized String recoverPassword(String username) {
         username = clean(username);
 
         User user = findUser(username);
@@ -182,105 +408,109 @@ public class LoginService {
         // simple temp password
         String tempPass = "Temp" + (int) (Math.random() * 9000 + 1000);
 
-        user.setPassword(tempPass);
-        saveUsers();
+        user.setPassword(hasher.hash(tempPass));
+        userRepo.save(user);
+        credentialCache.invalidate(username);
         return tempPass;
     }
 
-    public List<User> getAllUsers() {
+    public synchronized List<User> getAllUsers() {
         return new ArrayList<>(users);
     }
 
     // -------------------- Binary Auth Log --------------------
 
+    // queued; AuthLogAppender batches the writes
     private void logAuthEvent(String username, String event) {
-        try (DataOutputStream dos = new DataOutputStream(new FileOutputStream(AUTH_LOG_FILE, true))) {
+        authLog.append(username, event);
+    }
 
-            long timestamp = System.currentTimeMillis(); // binary time
-            dos.writeLong(timestamp);
-            dos.writeUTF(username);
-            dos.writeUTF(event);
+    // Whole log (all segments), oldest first. Queued events are included.
+    public List<String> readAuthLog() {
+        return format(authLog.readAll());
+    }
 
-            // readable date for viewing
-            String formattedDate = LocalDateTime.now()
-                    .format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-            dos.writeUTF(formattedDate);
+    // Last n entries, oldest first (end of the active file, archives only if needed).
+    public List<String> readRecentAuthLog(int n) {
+        return format(authLog.tail(n));
+    }
 
-        } catch (IOException e) {
-            System.err.println("Auth log error: " + e.getMessage());
-        }
+    // Entries with fromMillis <= timestamp < toMillis (only overlapping archives are opened).
+    public List<String> readAuthLog(long fromMillis, long toMillis) {
+        return format(authLog.range(fromMillis, toMillis));
     }
 
-    public List<String> readAuthLog() {
-        List<String> logEntries = new ArrayList<>();
-        File file = new File(AUTH_LOG_FILE);
-        if (!file.exists()) return logEntries;
-
-        try (DataInputStream dis = new DataInputStream(new FileInputStream(file))) {
-            while (true) {
-                dis.readLong(); // timestamp saved (binary)
-                String username = dis.readUTF();
-                String event = dis.readUTF();
-                String formattedDate = dis.readUTF();
-
-                logEntries.add(formattedDate + " | " + username + " | " + event);
-            }
-        } catch (EOFException ignored) {
-            // end of file
-        } catch (IOException e) {
-            System.err.println("Read log error: " + e.getMessage());
-        }
+    // Logins per hour, per-user counts and FAILED spikes for [fromMillis, toMillis) (admin only, null otherwise).
+    public AuthLogAnalytics analyzeAuthLog(long fromMillis, long toMillis) {
+        return analyzeAuthLog(currentSession, fromMillis, toMillis);
+    }
+
+    public AuthLogAnalytics analyzeAuthLog(UserSession actor, long fromMillis, long toMillis) {
+        if (!isAdmin(actor)) return null;
+        return AuthLogAnalytics.analyze(authLog, fromMillis, toMillis);
+    }
 
-        return logEntries;
+    private List<String> format(List<AuthLog.Entry> entries) {
+        List<String> lines = new ArrayList<>(entries.size());
+        for (AuthLog.Entry e : entries) lines.add(e.toString());
+        return lines;
     }
 
     // -------------------- Persistence --------------------
 
-    @SuppressWarnings("unchecked")
+    // users.txt, one record per change (users.dat is migrated the first time)
     private void loadUsers() {
-        File file = new File(USERS_FILE);
-        if (!file.exists()) return;
-
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-            Object obj = ois.readObject();
+        users = userRepo.loadAll();
+    }
 
-            // support older versions if needed
-            if (obj instanceof List) {
-                users = (List<User>) obj;
+    // Older files (and users.dat) hold plaintext passwords: hash them all, one rewrite.
+    private void migratePlaintextPasswords() {
+        int migrated = 0;
+        for (User u : users) {
+            if (!PasswordHasher.isHashed(u.getPassword())) {
+                u.setPassword(hasher.hash(u.getPassword()));
+                migrated++;
             }
-
-        } catch (Exception e) {
-            System.err.println("Load users error: " + e.getMessage());
-            users = new ArrayList<>();
         }
-    }
 
-    private void saveUsers() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(USERS_FILE))) {
-            oos.writeObject(users);
-        } catch (IOException e) {
-            System.err.println("Save users error: " + e.getMessage());
+        if (migrated > 0) {
+            if (!userRepo.saveAll(users)) return;   // keep the old files until hashes are on disk
+            System.out.println("Hashed " + migrated + " plaintext password(s) in " + USERS_FILE);
         }
+
+        // every stored password is hashed now: drop the plaintext users.dat copies
+        userRepo.deleteLegacyFiles();
     }
 
     private void ensureDefaultAdmin() {
         if (findUser("admin") == null) {
-            users.add(new Admin("admin", "admin123", "admin@crs.com"));
-            saveUsers();
+            User admin = new Admin("admin", hasher.hash("admin123"), "admin@crs.com");
+            addToList(admin);
+            userRepo.save(admin);
         }
     }
 
     // -------------------- Helpers --------------------
 
     public User findUser(String username) {
-        username = clean(username);
+        return usersByName.get(key(username));
+    }
+
+    private synchronized void addToList(User user) {
+        users.add(user);
+        usersByName.putIfAbsent(key(user.getUsername()), user);
+    }
 
+    private void rebuildIndex() {
+        usersByName.clear();
         for (User u : users) {
-            if (u.getUsername().equalsIgnoreCase(username)) {
-                return u;
-            }
+            // first match wins, same as the old linear scan
+            usersByName.putIfAbsent(key(u.getUsername()), u);
         }
-        return null;
+    }
+
+    private String key(String username) {
+        return clean(username).toLowerCase(Locale.ROOT);
     }
 
     private String clean(String s) {
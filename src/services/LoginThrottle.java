@@ -0,0 +1,200 @@
+package services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LoginThrottle
+ * Failed-login counters per username and per source (terminal / client address).
+ * - failures are counted in a sliding window of one-minute buckets (lock-free)
+ * - too many failures in the window locks that username / source for a while
+ * - isBlocked() is two map lookups, so a blocked attempt costs almost nothing
+ *   (no user lookup, no auth log write)
+ */
+public class LoginThrottle {
+
+    private static final long BUCKET_MS = 60_000;
+    private static final int PRUNE_EVERY = 1024;
+
+    private final int buckets;
+    private final int maxUserFailures;
+    private final int maxSourceFailures;
+    private final long lockoutMillis;
+
+    private final Map<String, Counter> byUser = new ConcurrentHashMap<>();
+    private final Map<String, Counter> bySource = new ConcurrentHashMap<>();
+    private final AtomicInteger failuresSincePrune = new AtomicInteger();
+
+    // windowMinutes: how far back failures count
+    public LoginThrottle(int windowMinutes, int maxUserFailures, int maxSourceFailures, long lockoutMillis) {
+        this.buckets = Math.max(1, windowMinutes);
+        this.maxUserFailures = Math.max(1, maxUserFailures);
+        this.maxSourceFailures = Math.max(1, maxSourceFailures);
+        this.lockoutMillis = Math.max(0, lockoutMillis);
+    }
+
+    // ---------------- Checks ----------------
+
+    public boolean isBlocked(String username, String source) {
+        long now = System.currentTimeMillis();
+        return isLocked(byUser.get(key(username)), now) || isLocked(bySource.get(key(source)), now);
+    }
+
+    // ms until the lockout ends (0 = not locked)
+    public long getRemainingLockout(String username, String source) {
+        long now = System.currentTimeMillis();
+        return Math.max(remaining(byUser.get(key(username)), now), remaining(bySource.get(key(source)), now));
+    }
+
+    // ---------------- Recording ----------------
+
+    public void recordFailure(String username, String source) {
+        long now = System.currentTimeMillis();
+
+        String u = key(username);
+        if (!u.isEmpty()) byUser.computeIfAbsent(u, k -> new Counter(buckets)).fail(now, maxUserFailures, lockoutMillis);
+
+        String s = key(source);
+        if (!s.isEmpty()) bySource.computeIfAbsent(s, k -> new Counter(buckets)).fail(now, maxSourceFailures, lockoutMillis);
+
+        // random usernames under attack would grow the maps forever
+        if (failuresSincePrune.incrementAndGet() >= PRUNE_EVERY) {
+            failuresSincePrune.set(0);
+            prune(now);
+        }
+    }
+
+    // successful login clears that username's failures (the source keeps its count)
+    public void recordSuccess(String username) {
+        byUser.remove(key(username));
+    }
+
+    // admin override
+    public void unlockUser(String username) {
+        byUser.remove(key(username));
+    }
+
+    public void unlockSource(String source) {
+        bySource.remove(key(source));
+    }
+
+    public void unlockAll() {
+        byUser.clear();
+        bySource.clear();
+    }
+
+    // ---------------- Admin view ----------------
+
+    public static class Lockout {
+        public final boolean isUser;      // false = source
+        public final String key;
+        public final int recentFailures;
+        public final long remainingMillis;
+
+        Lockout(boolean isUser, String key, int recentFailures, long remainingMillis) {
+            this.isUser = isUser;
+            this.key = key;
+            this.recentFailures = recentFailures;
+            this.remainingMillis = remainingMillis;
+        }
+
+        @Override
+        public String toString() {
+            return (isUser ? "User   " : "Source ") + key + " | failures: " + recentFailures +
+                    " | locked for " + Math.max(1, (remainingMillis + 59_999) / 60_000) + " min";
+        }
+    }
+
+    // usernames and sources that are locked right now
+    public List<Lockout> getLockouts() {
+        long now = System.currentTimeMillis();
+        List<Lockout> out = new ArrayList<>();
+        collect(byUser, true, now, out);
+        collect(bySource, false, now, out);
+        return out;
+    }
+
+    public boolean isUserLocked(String username) {
+        return isLocked(byUser.get(key(username)), System.currentTimeMillis());
+    }
+
+    // ---------------- Internal ----------------
+
+    private void collect(Map<String, Counter> map, boolean isUser, long now, List<Lockout> out) {
+        for (Map.Entry<String, Counter> e : map.entrySet()) {
+            long left = remaining(e.getValue(), now);
+            if (left > 0) out.add(new Lockout(isUser, e.getKey(), e.getValue().count(now), left));
+        }
+    }
+
+    private void prune(long now) {
+        byUser.values().removeIf(c -> c.isIdle(now));
+        bySource.values().removeIf(c -> c.isIdle(now));
+    }
+
+    private static boolean isLocked(Counter c, long now) {
+        return c != null && c.lockedUntil.get() > now;
+    }
+
+    private static long remaining(Counter c, long now) {
+        return (c == null) ? 0 : Math.max(0, c.lockedUntil.get() - now);
+    }
+
+    private static String key(String s) {
+        return (s == null) ? "" : s.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Ring of per-minute failure counts; each slot remembers which minute it holds.
+    private static class Counter {
+        private final AtomicLongArray counts;
+        private final AtomicLongArray minutes;
+        final AtomicLong lockedUntil = new AtomicLong();
+
+        Counter(int buckets) {
+            counts = new AtomicLongArray(buckets);
+            minutes = new AtomicLongArray(buckets);
+        }
+
+        void fail(long now, int max, long lockoutMillis) {
+            long minute = now / BUCKET_MS;
+            int slot = (int) (minute % counts.length());
+
+            // slot still holds an older minute: claim it and restart its count
+            long held = minutes.get(slot);
+            if (held != minute && minutes.compareAndSet(slot, held, minute)) {
+                counts.set(slot, 0);
+            }
+            counts.incrementAndGet(slot);
+
+            if (count(now) >= max) {
+                long until = now + lockoutMillis;
+                long cur;
+                while (until > (cur = lockedUntil.get()) && !lockedUntil.compareAndSet(cur, until)) {
+                    // retry
+                }
+            }
+        }
+
+        // failures within the window
+        int count(long now) {
+            long minute = now / BUCKET_MS;
+            long oldest = minute - counts.length() + 1;
+            long sum = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                long m = minutes.get(i);
+                if (m >= oldest && m <= minute) sum += counts.get(i);
+            }
+            return (int) sum;
+        }
+
+        boolean isIdle(long now) {
+            return lockedUntil.get() <= now && count(now) == 0;
+        }
+    }
+}
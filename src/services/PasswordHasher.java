@@ -0,0 +1,98 @@
+package services;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * PasswordHasher
+ * Salted PBKDF2 (HMAC-SHA256) password hashes.
+ * Stored form: pbkdf2_sha256$iterations$salt$hash (salt/hash Base64),
+ * so hashes made with an older iteration count still verify.
+ */
+public class PasswordHasher {
+
+    public static final String PREFIX = "pbkdf2_sha256";
+    public static final int DEFAULT_ITERATIONS = 100_000;
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final int iterations;
+
+    public PasswordHasher() {
+        this(DEFAULT_ITERATIONS);
+    }
+
+    public PasswordHasher(int iterations) {
+        this.iterations = Math.max(1, iterations);
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+
+        byte[] hash = derive(password, salt, iterations, HASH_BITS);
+        Base64.Encoder b64 = Base64.getEncoder();
+        return PREFIX + "$" + iterations + "$" + b64.encodeToString(salt) + "$" + b64.encodeToString(hash);
+    }
+
+    // false for a wrong password or a malformed / non-hashed value
+    public boolean verify(String password, String stored) {
+        String[] p = split(stored);
+        if (p == null) return false;
+
+        try {
+            int iter = Integer.parseInt(p[1]);
+            byte[] salt = Base64.getDecoder().decode(p[2]);
+            byte[] expected = Base64.getDecoder().decode(p[3]);
+            if (iter < 1 || expected.length == 0) return false;
+
+            byte[] actual = derive(password, salt, iter, expected.length * 8);
+            return MessageDigest.isEqual(expected, actual);   // constant time
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    public static boolean isHashed(String stored) {
+        return split(stored) != null;
+    }
+
+    // hashed with a different iteration count than this hasher uses (re-hash on next login)
+    public boolean needsRehash(String stored) {
+        String[] p = split(stored);
+        return p == null || !p[1].equals(String.valueOf(iterations));
+    }
+
+    // ---------------- Internal ----------------
+
+    private static String[] split(String stored) {
+        if (stored == null || !stored.startsWith(PREFIX + "$")) return null;
+        String[] p = stored.split("\\$", -1);
+        return (p.length == 4) ? p : null;
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations, int bits) {
+        char[] chars = (password == null) ? new char[0] : password.toCharArray();
+        PBEKeySpec spec = new PBEKeySpec(chars, salt, iterations, bits);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            // PBKDF2WithHmacSHA256 is part of every Java 8+ runtime
+            throw new IllegalStateException("Password hashing unavailable: " + e.getMessage(), e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
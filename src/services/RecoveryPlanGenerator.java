@@ -0,0 +1,192 @@
+package services;
+
+import model.Course;
+import model.Grade;
+import model.Milestone;
+import model.RecoveryPlan;
+import repository.CourseRepository;
+import repository.GradeFileHandler;
+import repository.RecoveryPlanRepository;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * RecoveryPlanGenerator
+ * Creates a recovery plan for every (student, course) whose latest attempt is an F.
+ * - grades.txt is read once (GradeFileHandler.latestAttempts)
+ * - milestones come from a per-course template, deadlines counted from the start date
+ * - plans that already exist are left alone (advisors may have edited them)
+ * - all new plans are saved in one batch (one journal commit)
+ *
+ * Template file (optional), one milestone per line:
+ * CourseID|Title|DaysFromStart
+ * CourseID "*" applies to courses without lines of their own.
+ * Title placeholders: {courseId} {courseName} {examWeight} {assignmentWeight}
+ * Without a file (or a "*" entry) the default is review -> assignment -> exam,
+ * skipping components the course doesn't have.
+ */
+public class RecoveryPlanGenerator {
+
+    public static final String TEMPLATE_HEADER = "CourseID|Title|DaysFromStart";
+    private static final String ANY_COURSE = "*";
+
+    private final GradeFileHandler gradeFile;
+    private final CourseRepository courseRepo;
+    private final RecoveryPlanRepository planRepo;
+    private final File templateFile;
+
+    // one milestone of a template
+    private static class Step {
+        final String title;
+        final int days;
+
+        Step(String title, int days) {
+            this.title = title;
+            this.days = days;
+        }
+    }
+
+    public static class Result {
+        public final int failedCourses;   // latest attempts graded F
+        public final int created;
+        public final int existing;        // already had a plan
+        public final long elapsedMillis;
+
+        Result(int failedCourses, int created, int existing, long elapsedMillis) {
+            this.failedCourses = failedCourses;
+            this.created = created;
+            this.existing = existing;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "Failed courses: " + failedCourses + "\nPlans created: " + created +
+                    "\nAlready had a plan: " + existing + "\nTime: " + elapsedMillis + " ms";
+        }
+    }
+
+    public RecoveryPlanGenerator(GradeFileHandler gradeFile, CourseRepository courseRepo,
+                                 RecoveryPlanRepository planRepo, String templatePath) {
+        this.gradeFile = gradeFile;
+        this.courseRepo = courseRepo;
+        this.planRepo = planRepo;
+        this.templateFile = (templatePath == null) ? null : new File(templatePath);
+    }
+
+    public Result generateForFailedCourses(LocalDate start) throws IOException {
+        long t0 = System.currentTimeMillis();
+
+        Map<String, Course> coursesById = new HashMap<String, Course>();
+        for (Course c : courseRepo.loadAllCourses()) {
+            coursesById.put(key(c.getCourseId()), c);
+        }
+        Map<String, List<Step>> templates = loadTemplates();
+
+        int failed = 0;
+        int existing = 0;
+        List<RecoveryPlan> batch = new ArrayList<RecoveryPlan>();
+
+        for (Grade g : gradeFile.latestAttempts()) {
+            if (!g.isFailed()) continue;
+            failed++;
+
+            if (planRepo.exists(g.getStudentId(), g.getCourseId())) {
+                existing++;
+                continue;
+            }
+
+            Course course = coursesById.get(key(g.getCourseId()));
+            batch.add(buildPlan(g.getStudentId(), g.getCourseId(), course, templates, start));
+        }
+
+        planRepo.saveAll(batch);
+        return new Result(failed, batch.size(), existing, System.currentTimeMillis() - t0);
+    }
+
+    // ---------------- Templates ----------------
+
+    private RecoveryPlan buildPlan(String studentId, String courseId, Course course,
+                                   Map<String, List<Step>> templates, LocalDate start) {
+        List<Step> steps = templates.get(key(courseId));
+        if (steps == null) steps = templates.get(ANY_COURSE);
+        if (steps == null) steps = defaultSteps(course);
+
+        RecoveryPlan plan = new RecoveryPlan(studentId, courseId);
+        for (Step s : steps) {
+            plan.addMilestone(new Milestone(fill(s.title, courseId, course), start.plusDays(s.days).toString()));
+        }
+        return plan;
+    }
+
+    private static List<Step> defaultSteps(Course course) {
+        List<Step> steps = new ArrayList<Step>();
+        steps.add(new Step("Review {courseName} feedback with advisor", 7));
+        if (course == null || course.getAssignmentWeight() > 0) {
+            steps.add(new Step("Resubmit {courseName} assignment ({assignmentWeight}%)", 21));
+        }
+        if (course == null || course.getExamWeight() > 0) {
+            steps.add(new Step("Sit {courseName} recovery exam ({examWeight}%)", 35));
+        }
+        return steps;
+    }
+
+    private static String fill(String title, String courseId, Course course) {
+        String name = (course == null) ? courseId : course.getCourseName();
+        return title.replace("{courseId}", courseId)
+                .replace("{courseName}", name)
+                .replace("{examWeight}", (course == null) ? "?" : String.valueOf(course.getExamWeight()))
+                .replace("{assignmentWeight}", (course == null) ? "?" : String.valueOf(course.getAssignmentWeight()));
+    }
+
+    // lower-case course id (or "*") -> steps in file order
+    private Map<String, List<Step>> loadTemplates() {
+        Map<String, List<Step>> templates = new HashMap<String, List<Step>>();
+        if (templateFile == null || !templateFile.exists()) return templates;
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(templateFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.equalsIgnoreCase(TEMPLATE_HEADER)) continue;
+
+                String[] p = line.split("\\|");
+                if (p.length < 3) continue;
+
+                int days;
+                try {
+                    days = Integer.parseInt(p[2].trim());
+                } catch (NumberFormatException e) {
+                    continue; // skip invalid line
+                }
+
+                String course = p[0].trim().equals(ANY_COURSE) ? ANY_COURSE : key(p[0]);
+                List<Step> steps = templates.get(course);
+                if (steps == null) {
+                    steps = new ArrayList<Step>();
+                    templates.put(course, steps);
+                }
+                steps.add(new Step(p[1].trim(), days));
+            }
+        } catch (IOException e) {
+            System.out.println("Recovery plan template read error: " + e.getMessage());
+        }
+        return templates;
+    }
+
+    private static String key(String s) {
+        return (s == null) ? "" : s.trim().toLowerCase(Locale.ROOT);
+    }
+}
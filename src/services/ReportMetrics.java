@@ -0,0 +1,177 @@
+package services;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ReportMetrics
+ * In-process counters + per-stage timings for report generation.
+ * Stages:
+ * - LOAD   : student/grade/course lookups (findById, latestByCourse)
+ * - LAYOUT : rendering the PDF/HTML/CSV into memory
+ * - WRITE  : writing the rendered bytes to /reports
+ * - TOTAL  : the whole generateAcademicReport call
+ *
+ * Percentiles are computed from the most recent samples of each stage.
+ */
+public class ReportMetrics {
+
+    public enum Stage { LOAD, LAYOUT, WRITE, TOTAL }
+
+    // samples kept per stage for percentiles
+    private static final int WINDOW = 1024;
+
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    private final StageTimer[] timers;
+
+    public ReportMetrics() {
+        timers = new StageTimer[Stage.values().length];
+        for (int i = 0; i < timers.length; i++) {
+            timers[i] = new StageTimer();
+        }
+    }
+
+    // ---------------- Recording ----------------
+
+    public void record(Stage stage, long nanos) {
+        timers[stage.ordinal()].add(nanos);
+    }
+
+    public void reportGenerated(long bytes) {
+        generated.incrementAndGet();
+        bytesWritten.addAndGet(bytes);
+    }
+
+    public void reportFailed() {
+        failures.incrementAndGet();
+    }
+
+    public void reset() {
+        generated.set(0);
+        failures.set(0);
+        bytesWritten.set(0);
+        for (StageTimer t : timers) t.clear();
+    }
+
+    // ---------------- Queries ----------------
+
+    public long getGenerated() { return generated.get(); }
+
+    public long getFailures() { return failures.get(); }
+
+    public long getBytesWritten() { return bytesWritten.get(); }
+
+    public long getCount(Stage stage) {
+        return timers[stage.ordinal()].count();
+    }
+
+    public double getAverageMillis(Stage stage) {
+        return timers[stage.ordinal()].averageMillis();
+    }
+
+    public double getMaxMillis(Stage stage) {
+        return timers[stage.ordinal()].maxMillis();
+    }
+
+    // p in (0, 100], e.g. 50, 95, 99
+    public double getPercentileMillis(Stage stage, double p) {
+        return timers[stage.ordinal()].percentileMillis(p);
+    }
+
+    // Text summary for logs / end of a batch run.
+    public String dump() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("REPORT METRICS\n");
+        sb.append("Reports generated: ").append(getGenerated())
+          .append(" | Failures: ").append(getFailures())
+          .append(" | Bytes written: ").append(getBytesWritten()).append("\n");
+        sb.append(String.format("%-7s %7s %9s %9s %9s %9s %9s%n",
+                "Stage", "count", "avg ms", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+
+        for (Stage s : Stage.values()) {
+            sb.append(String.format("%-7s %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    s, getCount(s), getAverageMillis(s),
+                    getPercentileMillis(s, 50), getPercentileMillis(s, 95),
+                    getPercentileMillis(s, 99), getMaxMillis(s)));
+        }
+        return sb.toString();
+    }
+
+    // Writes dump() to a text file.
+    public boolean exportSnapshot(File file) {
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            w.write(dump());
+            return true;
+        } catch (IOException e) {
+            System.out.println("Report metrics export error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return dump();
+    }
+
+    // ---------------- Timer ----------------
+
+    // count/sum/max over all samples + ring buffer of recent samples
+    private static class StageTimer {
+        private final long[] recent = new long[WINDOW];
+        private int next;
+        private long count;
+        private long sum;
+        private long max;
+
+        synchronized void add(long nanos) {
+            recent[next] = nanos;
+            next = (next + 1) % WINDOW;
+            count++;
+            sum += nanos;
+            if (nanos > max) max = nanos;
+        }
+
+        synchronized void clear() {
+            next = 0;
+            count = 0;
+            sum = 0;
+            max = 0;
+        }
+
+        synchronized long count() {
+            return count;
+        }
+
+        synchronized double averageMillis() {
+            return (count == 0) ? 0.0 : (sum / (double) count) / 1_000_000.0;
+        }
+
+        synchronized double maxMillis() {
+            return max / 1_000_000.0;
+        }
+
+        double percentileMillis(double p) {
+            long[] copy;
+            synchronized (this) {
+                int n = (int) Math.min(count, WINDOW);
+                if (n == 0) return 0.0;
+                copy = Arrays.copyOf(recent, n);
+            }
+            Arrays.sort(copy);
+
+            // nearest-rank
+            int rank = (int) Math.ceil(p / 100.0 * copy.length);
+            int idx = Math.max(0, Math.min(copy.length - 1, rank - 1));
+            return copy[idx] / 1_000_000.0;
+        }
+    }
+}
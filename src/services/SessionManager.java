@@ -0,0 +1,138 @@
+package services;
+
+import model.User;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * SessionManager
+ * Active sessions by token (ConcurrentHashMap, safe for many threads).
+ * A background sweep closes sessions idle longer than idleTimeoutMillis
+ * and reports each one to the expiry listener (LoginService logs it).
+ */
+public class SessionManager {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final Map<String, UserSession> sessions = new ConcurrentHashMap<>();
+    private final long idleTimeoutMillis;
+    private final Consumer<UserSession> onExpired;
+    private final ScheduledExecutorService sweeper;
+
+    public SessionManager(long idleTimeoutMillis, long sweepIntervalMillis, Consumer<UserSession> onExpired) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.onExpired = onExpired;
+
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-expiry");
+            t.setDaemon(true);
+            return t;
+        });
+        long every = Math.max(1000, sweepIntervalMillis);
+        sweeper.scheduleWithFixedDelay(this::expireIdle, every, every, TimeUnit.MILLISECONDS);
+    }
+
+    public UserSession open(User user, boolean expiresWhenIdle) {
+        UserSession s = new UserSession(newToken(), user, expiresWhenIdle);
+        sessions.put(s.getToken(), s);
+        return s;
+    }
+
+    // live session for the token (and marks it used), or null
+    public UserSession get(String token) {
+        if (token == null) return null;
+
+        UserSession s = sessions.get(token);
+        if (s == null) return null;
+
+        if (isIdle(s, System.currentTimeMillis())) {
+            expire(s);
+            return null;
+        }
+        s.touch();
+        return s;
+    }
+
+    // still open and not idle past the timeout (and marks it used, like get())
+    public boolean isActive(UserSession s) {
+        if (s == null || sessions.get(s.getToken()) != s) return false;
+
+        if (isIdle(s, System.currentTimeMillis())) {
+            expire(s);
+            return false;
+        }
+        s.touch();
+        return true;
+    }
+
+    public UserSession close(String token) {
+        return (token == null) ? null : sessions.remove(token);
+    }
+
+    // closes every session of this user (e.g. account deactivated)
+    public List<UserSession> closeAll(String username) {
+        List<UserSession> closed = new ArrayList<>();
+        for (Iterator<UserSession> it = sessions.values().iterator(); it.hasNext(); ) {
+            UserSession s = it.next();
+            if (s.getUsername().equalsIgnoreCase(username)) {
+                it.remove();
+                closed.add(s);
+            }
+        }
+        return closed;
+    }
+
+    public List<UserSession> getActive() {
+        return new ArrayList<>(sessions.values());
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    // ---------------- Internal ----------------
+
+    private void expireIdle() {
+        long now = System.currentTimeMillis();
+        for (UserSession s : sessions.values()) {
+            if (isIdle(s, now)) expire(s);
+        }
+    }
+
+    private boolean isIdle(UserSession s, long now) {
+        return s.expiresWhenIdle() && now - s.getLastAccess() > idleTimeoutMillis;
+    }
+
+    private void expire(UserSession s) {
+        // only the thread that actually removes it reports it
+        if (sessions.remove(s.getToken(), s) && onExpired != null) {
+            try {
+                onExpired.accept(s);
+            } catch (RuntimeException e) {
+                System.err.println("Session expiry error: " + e.getMessage());
+            }
+        }
+    }
+
+    // 128-bit random token, hex
+    private static String newToken() {
+        byte[] bytes = new byte[16];
+        RANDOM.nextBytes(bytes);
+        StringBuilder sb = new StringBuilder(32);
+        for (byte b : bytes) sb.append(String.format("%02x", b));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,130 @@
+package services;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * SmtpHealthMonitor
+ * Probes the SMTP server in the background (connect + handshake + AUTH,
+ * no email sent) with short timeouts, and keeps the last result.
+ * The UI and bulk senders read getStatus() instead of blocking on the network.
+ */
+public class SmtpHealthMonitor {
+
+    public enum State {
+        UNKNOWN, UP, DOWN
+    }
+
+    // Immutable result of one probe
+    public static class Status {
+        public final State state;
+        public final long latencyMillis;   // connect + handshake time, -1 if no probe yet
+        public final long checkedAt;       // epoch millis, 0 if no probe yet
+        public final String error;         // "" when UP
+
+        Status(State state, long latencyMillis, long checkedAt, String error) {
+            this.state = state;
+            this.latencyMillis = latencyMillis;
+            this.checkedAt = checkedAt;
+            this.error = (error == null) ? "" : error;
+        }
+
+        public boolean isUp() {
+            return state == State.UP;
+        }
+
+        public boolean isDown() {
+            return state == State.DOWN;
+        }
+
+        public long getAgeMillis() {
+            return (checkedAt == 0) ? -1 : System.currentTimeMillis() - checkedAt;
+        }
+
+        @Override
+        public String toString() {
+            switch (state) {
+                case UP:
+                    return "UP (" + latencyMillis + " ms)";
+                case DOWN:
+                    return "DOWN (" + error + ")";
+                default:
+                    return "UNKNOWN (not checked yet)";
+            }
+        }
+    }
+
+    static final Status NOT_CHECKED = new Status(State.UNKNOWN, -1, 0, "");
+
+    private final EmailService emailService;
+    private final long intervalMillis;
+    private final int timeoutMillis;
+
+    private final ScheduledExecutorService scheduler;
+    private final AtomicBoolean probing = new AtomicBoolean();
+    private ScheduledFuture<?> periodic;
+
+    private volatile Status status = NOT_CHECKED;
+
+    public SmtpHealthMonitor(EmailService emailService, long intervalMillis, int timeoutMillis) {
+        if (emailService == null) throw new IllegalArgumentException("EmailService is required.");
+
+        this.emailService = emailService;
+        this.intervalMillis = Math.max(1000, intervalMillis);
+        this.timeoutMillis = Math.max(500, timeoutMillis);
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "smtp-health");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public synchronized void start() {
+        if (periodic != null || scheduler.isShutdown()) return;
+        periodic = scheduler.scheduleWithFixedDelay(this::probe, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (periodic != null) periodic.cancel(false);
+        periodic = null;
+        scheduler.shutdownNow();
+    }
+
+    // Last known status (never blocks)
+    public Status getStatus() {
+        return status;
+    }
+
+    // Ask for a fresh probe now; returns immediately (ignored if one is already running)
+    public void checkNow() {
+        if (scheduler.isShutdown()) return;
+        try {
+            scheduler.execute(this::probe);
+        } catch (RuntimeException ignored) {
+            // shut down in between
+        }
+    }
+
+    // ---------------- Probe ----------------
+
+    private void probe() {
+        if (!probing.compareAndSet(false, true)) return;
+
+        long start = System.currentTimeMillis();
+        try {
+            emailService.probe(timeoutMillis);
+            status = new Status(State.UP, System.currentTimeMillis() - start, System.currentTimeMillis(), "");
+
+        } catch (Exception e) {
+            String msg = (e.getMessage() == null) ? e.getClass().getSimpleName() : e.getMessage();
+            status = new Status(State.DOWN, System.currentTimeMillis() - start, System.currentTimeMillis(), msg);
+
+        } finally {
+            probing.set(false);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package services;
+
+import javax.mail.MessagingException;
+import javax.mail.NoSuchProviderException;
+import javax.mail.Session;
+import javax.mail.Transport;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * SmtpTransportPool
+ * Small pool of connected SMTP Transports so bulk sends reuse
+ * one TCP + STARTTLS + AUTH handshake instead of doing it per message.
+ *
+ * - borrow() hands out an idle connection (or opens a new one up to maxSize)
+ * - a connection idle longer than healthCheckAfterMillis is checked with NOOP
+ *   (Transport.isConnected) and reconnected if the server dropped it
+ * - release(t, broken) returns it; broken connections are closed, not reused
+ */
+public class SmtpTransportPool {
+
+    private final Session session;
+    private final int maxSize;
+    private final long healthCheckAfterMillis;
+    private final long borrowTimeoutMillis;
+
+    private final Deque<Entry> idle = new ArrayDeque<Entry>();
+    private int open;       // connections handed out + idle
+    private boolean closed;
+
+    // optional: connect latencies are recorded here
+    private volatile EmailMetrics metrics;
+
+    public SmtpTransportPool(Session session, int maxSize) {
+        this(session, maxSize, 30_000, 60_000);
+    }
+
+    public SmtpTransportPool(Session session, int maxSize, long healthCheckAfterMillis, long borrowTimeoutMillis) {
+        if (session == null) throw new IllegalArgumentException("Session is required.");
+        if (maxSize < 1) throw new IllegalArgumentException("Pool size must be at least 1.");
+
+        this.session = session;
+        this.maxSize = maxSize;
+        this.healthCheckAfterMillis = Math.max(0, healthCheckAfterMillis);
+        this.borrowTimeoutMillis = Math.max(0, borrowTimeoutMillis);
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public void setMetrics(EmailMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // ---------------- Borrow / Release ----------------
+
+    public Transport borrow() throws MessagingException {
+        Entry e = takeIdleOrReserve();
+
+        if (e == null) {
+            // reserved a slot: open a new connection outside the lock
+            try {
+                return connect();
+            } catch (MessagingException | RuntimeException ex) {
+                freeSlot();
+                throw ex;
+            }
+        }
+
+        // reuse, health-checking connections that sat idle for a while
+        boolean stale = System.currentTimeMillis() - e.idleSince > healthCheckAfterMillis;
+        if (!stale || e.transport.isConnected()) {
+            return e.transport;
+        }
+
+        closeQuietly(e.transport);
+        try {
+            timedConnect(e.transport);
+            return e.transport;
+        } catch (MessagingException | RuntimeException ex) {
+            freeSlot();
+            throw ex;
+        }
+    }
+
+    public void release(Transport transport, boolean broken) {
+        if (transport == null) return;
+
+        boolean keep;
+        synchronized (this) {
+            keep = !broken && !closed;
+            if (keep) {
+                idle.push(new Entry(transport, System.currentTimeMillis()));
+            } else {
+                open--;
+            }
+            notifyAll();
+        }
+
+        if (!keep) closeQuietly(transport);
+    }
+
+    // ---------------- Info ----------------
+
+    public synchronized int getOpenCount() {
+        return open;
+    }
+
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    // ---------------- Shutdown ----------------
+
+    public void close() {
+        Deque<Entry> toClose;
+        synchronized (this) {
+            closed = true;
+            toClose = new ArrayDeque<Entry>(idle);
+            open -= idle.size();
+            idle.clear();
+            notifyAll();
+        }
+        for (Entry e : toClose) closeQuietly(e.transport);
+    }
+
+    // ---------------- Internal ----------------
+
+    // returns an idle entry, or null after reserving a slot for a new connection
+    private synchronized Entry takeIdleOrReserve() throws MessagingException {
+        long deadline = System.currentTimeMillis() + borrowTimeoutMillis;
+
+        while (true) {
+            if (closed) throw new MessagingException("SMTP pool is closed.");
+
+            // most recently used first: least likely to have been dropped by the server
+            Entry e = idle.poll();
+            if (e != null) return e;
+
+            if (open < maxSize) {
+                open++;
+                return null;
+            }
+
+            long wait = deadline - System.currentTimeMillis();
+            if (wait <= 0) throw new MessagingException("Timed out waiting for an SMTP connection.");
+
+            try {
+                wait(wait);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new MessagingException("Interrupted waiting for an SMTP connection.");
+            }
+        }
+    }
+
+    private synchronized void freeSlot() {
+        open--;
+        notifyAll();
+    }
+
+    private Transport connect() throws MessagingException {
+        Transport t;
+        try {
+            t = session.getTransport("smtp");
+        } catch (NoSuchProviderException e) {
+            throw new MessagingException("SMTP provider not available.", e);
+        }
+        timedConnect(t);
+        return t;
+    }
+
+    private void timedConnect(Transport t) throws MessagingException {
+        long start = System.nanoTime();
+        t.connect();
+
+        EmailMetrics m = metrics;
+        if (m != null) m.record(EmailMetrics.Latency.CONNECT, System.nanoTime() - start);
+    }
+
+    private void closeQuietly(Transport t) {
+        try {
+            t.close();
+        } catch (Exception ignored) {
+            // already closed / server gone
+        }
+    }
+
+    private static class Entry {
+        final Transport transport;
+        final long idleSince;
+
+        Entry(Transport transport, long idleSince) {
+            this.transport = transport;
+            this.idleSince = idleSince;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package services;
+
+/**
+ * TokenBucket
+ * Simple rate limiter: holds up to `capacity` tokens, refilled at
+ * `ratePerSecond`. Each acquire() takes one token, waiting if none are left.
+ * Used to keep bulk mailing under the SMTP provider's sending limits.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(double ratePerSecond, int capacity) {
+        if (ratePerSecond <= 0) throw new IllegalArgumentException("Rate must be positive.");
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be at least 1.");
+
+        this.capacity = capacity;
+        this.tokensPerNano = ratePerSecond / 1_000_000_000.0;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    // Blocks until a token is available.
+    public void acquire() throws InterruptedException {
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                refill();
+                if (tokens >= 1.0) {
+                    tokens -= 1.0;
+                    return;
+                }
+                waitNanos = (long) Math.ceil((1.0 - tokens) / tokensPerNano);
+            }
+            // sleep outside the lock so other threads can check too
+            Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+        }
+    }
+
+    // Takes a token only if one is available right now.
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens >= 1.0) {
+            tokens -= 1.0;
+            return true;
+        }
+        return false;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+}
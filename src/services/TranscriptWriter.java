@@ -0,0 +1,121 @@
+package services;
+
+import model.Student;
+import model.Transcript;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.DecimalFormat;
+
+/**
+ * TranscriptWriter
+ * Plain-text transcript renderers (HTML / CSV) for the student portal feed.
+ * Much lighter than the iText PDF: no layout engine, one pass over the rows.
+ */
+public class TranscriptWriter {
+
+    public static final String CSV_HEADER = "CourseCode,CourseTitle,CreditHours,Grade,GradePoint";
+
+    private TranscriptWriter() {
+    }
+
+    // ---------------- CSV ----------------
+
+    // Format:
+    // # key,value lines (student info + totals), then CSV_HEADER and one line per course
+    public static void writeCsv(Transcript t, Writer out) throws IOException {
+        DecimalFormat df = new DecimalFormat("0.00");
+        Student s = t.getStudent();
+
+        out.write("# StudentID," + csv(s.getStudentId()) + "\n");
+        out.write("# StudentName," + csv(s.getFullName()) + "\n");
+        out.write("# Program," + csv(s.getMajor()) + "\n");
+        out.write("# Year," + csv(s.getYear()) + "\n");
+        out.write("# Semester," + csv(t.getSemesterLabel()) + "\n");
+        out.write(CSV_HEADER + "\n");
+
+        StringBuilder sb = new StringBuilder(64);
+        for (Transcript.Row r : t.getRows()) {
+            sb.setLength(0);
+            sb.append(csv(r.getCourseCode())).append(',')
+              .append(csv(r.getCourseTitle())).append(',')
+              .append(r.getCreditHours()).append(',')
+              .append(csv(r.getGradeLetter())).append(',')
+              .append(df.format(r.getGradePoint())).append('\n');
+            out.write(sb.toString());
+        }
+
+        out.write("# TotalCredits," + t.getTotalCredits() + "\n");
+        out.write("# CGPA," + df.format(t.getCgpa()) + "\n");
+    }
+
+    // ---------------- HTML ----------------
+
+    public static void writeHtml(Transcript t, Writer out) throws IOException {
+        DecimalFormat df = new DecimalFormat("0.00");
+        Student s = t.getStudent();
+
+        out.write("<!DOCTYPE html>\n<html><head><meta charset=\"UTF-8\">");
+        out.write("<title>Academic Performance Report - " + html(s.getStudentId()) + "</title></head>\n<body>\n");
+        out.write("<h1>Academic Performance Report</h1>\n");
+
+        out.write("<p>Student Name: " + html(s.getFullName()) + "<br>\n");
+        out.write("Student ID: " + html(s.getStudentId()) + "<br>\n");
+        out.write("Program: " + html(s.getMajor()) + "<br>\n");
+        out.write("Year of Study: " + html(s.getYear()) + "</p>\n");
+        out.write("<h3>Semester: " + html(t.getSemesterLabel()) + "</h3>\n");
+
+        out.write("<table border=\"1\" cellpadding=\"6\" cellspacing=\"0\">\n");
+        out.write("<tr><th>Course Code</th><th>Course Title</th><th>Credit Hours</th>"
+                + "<th>Grade</th><th>Grade Point (4.0)</th></tr>\n");
+
+        StringBuilder sb = new StringBuilder(160);
+        for (Transcript.Row r : t.getRows()) {
+            sb.setLength(0);
+            sb.append("<tr><td>").append(html(r.getCourseCode()))
+              .append("</td><td>").append(html(r.getCourseTitle()))
+              .append("</td><td>").append(r.getCreditHours())
+              .append("</td><td>").append(html(r.getGradeLetter()))
+              .append("</td><td>").append(df.format(r.getGradePoint()))
+              .append("</td></tr>\n");
+            out.write(sb.toString());
+        }
+        out.write("</table>\n");
+
+        out.write("<p><b>Cumulative GPA (CGPA): " + df.format(t.getCgpa()) + "</b></p>\n");
+        out.write("<p><b>Recommendations:</b><br>\n");
+        out.write("- Review weak topics and ask lecturer if needed.<br>\n");
+        out.write("- Follow recovery milestones if you have weak courses.</p>\n");
+        out.write("</body></html>\n");
+    }
+
+    // ---------------- Escaping ----------------
+
+    private static String csv(String s) {
+        String x = (s == null) ? "" : s.trim();
+        if (x.indexOf(',') < 0 && x.indexOf('"') < 0 && x.indexOf('\n') < 0) return x;
+        return "\"" + x.replace("\"", "\"\"") + "\"";
+    }
+
+    private static String html(String s) {
+        String x = (s == null) ? "" : s.trim();
+        StringBuilder sb = null;
+
+        for (int i = 0; i < x.length(); i++) {
+            char c = x.charAt(i);
+            String rep = null;
+            if (c == '<') rep = "&lt;";
+            else if (c == '>') rep = "&gt;";
+            else if (c == '&') rep = "&amp;";
+            else if (c == '"') rep = "&quot;";
+
+            if (rep != null) {
+                if (sb == null) sb = new StringBuilder(x.length() + 16).append(x, 0, i);
+                sb.append(rep);
+            } else if (sb != null) {
+                sb.append(c);
+            }
+        }
+        return (sb == null) ? x : sb.toString();
+    }
+}
@@ -0,0 +1,68 @@
+package services;
+
+import model.User;
+
+/**
+ * UserSession
+ * One logged-in user, identified by a random token.
+ * Role checks go through the session (not a global "current user"),
+ * so several users can be logged in at once.
+ */
+public class UserSession {
+
+    private final String token;
+    private final User user;
+    private final long createdAt;
+    private final boolean expiresWhenIdle;
+    private volatile long lastAccess;
+
+    UserSession(String token, User user, boolean expiresWhenIdle) {
+        this.token = token;
+        this.user = user;
+        this.createdAt = System.currentTimeMillis();
+        this.lastAccess = createdAt;
+        this.expiresWhenIdle = expiresWhenIdle;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public String getUsername() {
+        return user.getUsername();
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getLastAccess() {
+        return lastAccess;
+    }
+
+    // false for the desktop session (it stays open until logout)
+    public boolean expiresWhenIdle() {
+        return expiresWhenIdle;
+    }
+
+    public boolean hasRole(String role) {
+        return user.isActive() && user.hasRole(role);
+    }
+
+    public boolean isAdmin() {
+        return hasRole("ADMIN");
+    }
+
+    void touch() {
+        lastAccess = System.currentTimeMillis();
+    }
+
+    @Override
+    public String toString() {
+        return user.getUsername() + " (" + user.getRole() + ")";
+    }
+}
@@ -1,11 +1,11 @@
 package ui;
 
 import model.Course;
-import model.Grade;
 import model.Student;
 import repository.*;
 import services.AcademicReportPDFService;
 import services.EmailService;
+import services.ReportMetrics;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
@@ -26,13 +26,24 @@ public class GenerateReportDialog extends JDialog {
     private JTable studentTable;
     private DefaultTableModel tableModel;
     private JComboBox<String> semesterBox;
+    private JComboBox<AcademicReportPDFService.Format> formatBox;
+    private JComboBox<AcademicReportPDFService.PdfProfile> profileBox;
+    private JCheckBox emailBox;
+
+    private JProgressBar progressBar;
+    private JLabel statusLabel;
+    private JButton genBtn;
+    private JButton cancelBtn;
+
+    // running batch (null when idle)
+    private ReportWorker worker;
 
     // match table row -> Student object
     private java.util.List<Student> gradedStudents = new java.util.ArrayList<Student>();
 
     public GenerateReportDialog(Frame owner) {
         super(owner, "Generate Academic Report (PDF)", true);
-        setSize(800, 450);
+        setSize(900, 450);
         setLocationRelativeTo(owner);
         initUI();
         loadStudentsWithGrades();
@@ -49,6 +60,20 @@ public class GenerateReportDialog extends JDialog {
         semesterBox = new JComboBox<>(loadSemesters());
         top.add(semesterBox);
 
+        top.add(new JLabel("Format:"));
+        formatBox = new JComboBox<>(AcademicReportPDFService.Format.values());
+        top.add(formatBox);
+
+        // PDF only; COMPACT gives much smaller files for a little CPU
+        top.add(new JLabel("PDF:"));
+        profileBox = new JComboBox<>(AcademicReportPDFService.PdfProfile.values());
+        profileBox.setSelectedItem(AcademicReportPDFService.PdfProfile.COMPACT);
+        top.add(profileBox);
+        formatBox.addActionListener(e -> profileBox.setEnabled(isPdfSelected()));
+
+        emailBox = new JCheckBox("Email reports to students");
+        top.add(emailBox);
+
         add(top, BorderLayout.NORTH);
 
         // center (table)
@@ -60,25 +85,48 @@ public class GenerateReportDialog extends JDialog {
         };
 
         studentTable = new JTable(tableModel);
-        studentTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        studentTable.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
 
         JScrollPane scroll = new JScrollPane(studentTable);
         scroll.setBorder(BorderFactory.createEmptyBorder(0, 10, 0, 10));
         add(scroll, BorderLayout.CENTER);
 
-        // bottom (buttons)
-        JButton genBtn = new JButton("Generate PDF");
-        JButton cancelBtn = new JButton("Cancel");
+        // bottom (progress + buttons)
+        progressBar = new JProgressBar(0, 1);
+        progressBar.setStringPainted(true);
+        progressBar.setString("");
+
+        statusLabel = new JLabel("Select one or more students (Ctrl/Shift for multiple).");
+
+        JPanel progressPanel = new JPanel(new BorderLayout(5, 5));
+        progressPanel.add(statusLabel, BorderLayout.NORTH);
+        progressPanel.add(progressBar, BorderLayout.CENTER);
 
-        JPanel bottom = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        genBtn = new JButton("Generate Report");
+        cancelBtn = new JButton("Cancel");
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttons.add(cancelBtn);
+        buttons.add(genBtn);
+
+        JPanel bottom = new JPanel(new BorderLayout(5, 5));
         bottom.setBorder(BorderFactory.createEmptyBorder(0, 10, 10, 10));
-        bottom.add(cancelBtn);
-        bottom.add(genBtn);
+        bottom.add(progressPanel, BorderLayout.CENTER);
+        bottom.add(buttons, BorderLayout.EAST);
 
         add(bottom, BorderLayout.SOUTH);
 
-        cancelBtn.addActionListener(e -> dispose());
+        cancelBtn.addActionListener(e -> onCancel());
         genBtn.addActionListener(e -> onGenerate());
+
+        // closing the window while a batch runs cancels it
+        setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                onCancel();
+            }
+        });
     }
 
     private String[] loadSemesters() {
@@ -105,13 +153,13 @@ public class GenerateReportDialog extends JDialog {
 
         java.util.List<Student> all = studentRepo.loadAllStudents();
 
+        // one read of grades.txt (the handler's index), then a single pass over the students
+        java.util.Set<String> withGrades = gradeFile.getStudentIdsWithGrades();
+
         for (Student s : all) {
             if (s == null) continue;
 
-            // latestByCourse now returns List<Grade>
-            java.util.List<Grade> latest = gradeFile.latestByCourse(s.getStudentId());
-
-            if (latest != null && !latest.isEmpty()) {
+            if (withGrades.contains(safe(s.getStudentId()).toLowerCase())) {
                 gradedStudents.add(s);
                 tableModel.addRow(new Object[]{
                         safe(s.getStudentId()),
@@ -132,76 +180,214 @@ public class GenerateReportDialog extends JDialog {
     }
 
     private void onGenerate() {
-        int row = studentTable.getSelectedRow();
-        if (row < 0) {
+        int[] viewRows = studentTable.getSelectedRows();
+        if (viewRows.length == 0) {
             JOptionPane.showMessageDialog(this,
-                    "Please select a student from the list.",
+                    "Please select at least one student from the list.",
                     "Validation",
                     JOptionPane.ERROR_MESSAGE);
             return;
         }
 
-        Student selectedStudent = gradedStudents.get(row);
+        java.util.List<Student> selected = new java.util.ArrayList<Student>();
+        for (int viewRow : viewRows) {
+            selected.add(gradedStudents.get(studentTable.convertRowIndexToModel(viewRow)));
+        }
 
         String sem = (String) semesterBox.getSelectedItem();
         if (sem == null) sem = "(All)";
         String semFilter = "(All)".equals(sem) ? "" : sem;
 
-        try {
-            AcademicReportPDFService.ReportResult result =
-                    pdfService.generateAcademicReportPdf(selectedStudent.getStudentId(), semFilter);
-
-            String pdfPath = result.pdfPath;
-
-            int choice = JOptionPane.showConfirmDialog(
-                    this,
-                    "PDF generated:\n" + pdfPath + "\n\nSend to student's email now?",
-                    "Send Email",
-                    JOptionPane.YES_NO_OPTION
-            );
-
-            if (choice == JOptionPane.YES_OPTION) {
-                String email = safe(selectedStudent.getEmail());
-                if (email.isEmpty()) {
-                    JOptionPane.showMessageDialog(this,
-                            "Student has no email on record.",
-                            "Cannot Send Email",
-                            JOptionPane.ERROR_MESSAGE);
-                    return;
+        AcademicReportPDFService.Format format = (AcademicReportPDFService.Format) formatBox.getSelectedItem();
+        pdfService.setPdfProfile((AcademicReportPDFService.PdfProfile) profileBox.getSelectedItem());
+
+        worker = new ReportWorker(selected, semFilter, format, emailBox.isSelected());
+        setRunning(true, selected.size());
+        worker.execute();
+    }
+
+    // Cancel = stop the running batch, or close the dialog when idle.
+    private void onCancel() {
+        if (worker != null && !worker.isDone()) {
+            worker.stopRequested = true;
+            statusLabel.setText("Cancelling after the current student...");
+            cancelBtn.setEnabled(false);
+            return;
+        }
+        dispose();
+    }
+
+    private void setRunning(boolean running, int total) {
+        genBtn.setEnabled(!running);
+        studentTable.setEnabled(!running);
+        semesterBox.setEnabled(!running);
+        formatBox.setEnabled(!running);
+        profileBox.setEnabled(!running && isPdfSelected());
+        emailBox.setEnabled(!running);
+        cancelBtn.setEnabled(true);
+        cancelBtn.setText(running ? "Stop" : "Cancel");
+
+        if (running) {
+            progressBar.setMaximum(total);
+            progressBar.setValue(0);
+            progressBar.setString("0 / " + total);
+        }
+    }
+
+    // called on the EDT when the batch ends (normally or cancelled)
+    private void onBatchFinished(ReportWorker w) {
+        setRunning(false, 0);
+        worker = null;
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(w.stopRequested ? "Cancelled. " : "Done. ")
+          .append(w.generated).append(" of ").append(w.students.size())
+          .append(" report(s) saved in /reports folder.");
+
+        if (w.sendEmail) {
+            sb.append("\nEmails queued for delivery: ").append(w.sent);
+        }
+        if (!w.errors.isEmpty()) {
+            sb.append("\n\nProblems:");
+            for (String e : w.errors) sb.append("\n- ").append(e);
+        }
+
+        statusLabel.setText(w.stopRequested ? "Cancelled." : "Finished.");
+
+        // end of batch: stage timings + counters one click away
+        Object[] options = {"OK", "Metrics..."};
+        int choice = JOptionPane.showOptionDialog(this,
+                sb.toString(),
+                w.errors.isEmpty() ? "Success" : "Report Summary",
+                JOptionPane.DEFAULT_OPTION,
+                w.errors.isEmpty() ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE,
+                null, options, options[0]);
+
+        if (choice == 1) viewReportMetrics();
+    }
+
+    // Snapshot of report stage timings / counters, with export to a text file.
+    private void viewReportMetrics() {
+        ReportMetrics metrics = AcademicReportPDFService.getMetrics();
+
+        JTextArea textArea = new JTextArea(metrics.dump(), 15, 70);
+        textArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        textArea.setEditable(false);
+        textArea.setCaretPosition(0);
+
+        Object[] options = {"Export...", "Reset", "Close"};
+        int choice = JOptionPane.showOptionDialog(this, new JScrollPane(textArea),
+                "Report Metrics", JOptionPane.DEFAULT_OPTION, JOptionPane.PLAIN_MESSAGE,
+                null, options, options[2]);
+
+        if (choice == 0) {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setSelectedFile(new File("report_metrics_" + System.currentTimeMillis() + ".txt"));
+            if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+
+            boolean ok = metrics.exportSnapshot(chooser.getSelectedFile());
+            JOptionPane.showMessageDialog(this,
+                    ok ? "Saved: " + chooser.getSelectedFile().getPath() : "Could not save the snapshot.",
+                    "Report Metrics",
+                    ok ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.ERROR_MESSAGE);
+
+        } else if (choice == 1) {
+            metrics.reset();
+        }
+    }
+
+    /**
+     * Generates (and optionally emails) reports off the EDT.
+     * Progress is published back to the EDT through process()/done().
+     */
+    private class ReportWorker extends SwingWorker<Void, String> {
+
+        final java.util.List<Student> students;
+        final String semFilter;
+        final AcademicReportPDFService.Format format;
+        final boolean sendEmail;
+
+        // set from the EDT; checked between students so done() only runs
+        // once the current student is finished (SwingWorker.cancel would fire it early)
+        volatile boolean stopRequested;
+
+        // written by the worker thread, read in done() (happens-after)
+        int generated;
+        int sent;
+        final java.util.List<String> errors = new java.util.ArrayList<String>();
+
+        ReportWorker(java.util.List<Student> students, String semFilter,
+                     AcademicReportPDFService.Format format, boolean sendEmail) {
+            this.students = students;
+            this.semFilter = semFilter;
+            this.format = format;
+            this.sendEmail = sendEmail;
+        }
+
+        @Override
+        protected Void doInBackground() {
+            String semesterLabel = semFilter.isEmpty() ? "All Semesters" : semFilter;
+
+            for (int i = 0; i < students.size() && !stopRequested; i++) {
+                Student s = students.get(i);
+                publish("Generating report for " + s.getStudentId() + " (" + (i + 1) + "/" + students.size() + ")");
+
+                try {
+                    AcademicReportPDFService.ReportResult result =
+                            pdfService.generateAcademicReport(s.getStudentId(), semFilter, format);
+                    generated++;
+
+                    if (sendEmail && !stopRequested) {
+                        String email = safe(s.getEmail());
+                        if (email.isEmpty()) {
+                            errors.add(s.getStudentId() + ": no email on record");
+                        } else {
+                            publish("Queueing email to " + email + " (" + (i + 1) + "/" + students.size() + ")");
+
+                            // outbox: delivered in the background, with retries
+                            boolean ok = emailService.queuePerformanceReportWithAttachment(
+                                    email,
+                                    s.getFullName(),
+                                    semesterLabel,
+                                    result.cgpa,
+                                    new File(result.pdfPath)
+                            );
+
+                            if (ok) sent++;
+                            else errors.add(s.getStudentId() + ": email could not be queued");
+                        }
+                    }
+                } catch (Exception ex) {
+                    errors.add(s.getStudentId() + ": " + ex.getMessage());
                 }
 
-                String semesterLabel = semFilter.isEmpty() ? "All Semesters" : semFilter;
-
-                boolean sent = emailService.sendPerformanceReportWithAttachment(
-                        email,
-                        selectedStudent.getFullName(),
-                        semesterLabel,
-                        result.cgpa,
-                        new File(pdfPath)
-                );
-
-                JOptionPane.showMessageDialog(this,
-                        sent ? "Email sent to: " + email : "Email failed to send (check SMTP/App Password).",
-                        sent ? "Success" : "Email Error",
-                        sent ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.ERROR_MESSAGE
-                );
-            } else {
-                JOptionPane.showMessageDialog(this,
-                        "Done. PDF is saved in /reports folder.",
-                        "Success",
-                        JOptionPane.INFORMATION_MESSAGE);
+                publish((String) null); // null = one student finished
             }
+            return null;
+        }
 
-            dispose();
+        @Override
+        protected void process(java.util.List<String> chunks) {
+            for (String msg : chunks) {
+                if (msg == null) {
+                    progressBar.setValue(progressBar.getValue() + 1);
+                    progressBar.setString(progressBar.getValue() + " / " + students.size());
+                } else {
+                    statusLabel.setText(msg);
+                }
+            }
+        }
 
-        } catch (Exception ex) {
-            JOptionPane.showMessageDialog(this,
-                    ex.getMessage(),
-                    "Report Error",
-                    JOptionPane.ERROR_MESSAGE);
+        @Override
+        protected void done() {
+            onBatchFinished(this);
         }
     }
 
+    private boolean isPdfSelected() {
+        return formatBox.getSelectedItem() == AcademicReportPDFService.Format.PDF;
+    }
+
     private String safe(String s) {
         return (s == null) ? "" : s.trim();
     }
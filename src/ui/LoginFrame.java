@@ -142,7 +142,13 @@ public class LoginFrame extends JFrame {
         boolean success = loginService.login(username, password);
 
         if (!success) {
-            showStatus("Invalid credentials or account deactivated", false);
+            long locked = loginService.getLockoutRemaining(username);
+            if (locked > 0) {
+                long minutes = Math.max(1, (locked + 59_999) / 60_000);
+                showStatus("Too many failed attempts. Try again in " + minutes + " min", false);
+            } else {
+                showStatus("Invalid credentials or account deactivated", false);
+            }
             passwordField.setText("");
             loginButton.setEnabled(true);
             return;
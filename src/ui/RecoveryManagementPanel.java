@@ -2,16 +2,20 @@ package ui;
 
 import model.*;
 import repository.CourseRepository;
+import repository.GradeFileHandler;
+import repository.RecoveryPlanRepository;
 import repository.StudentRepository;
 import services.EmailService;
+import services.RecoveryPlanGenerator;
 
 import javax.swing.*;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.io.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 /**
  * RecoveryManagementPanel
@@ -21,6 +25,7 @@ public class RecoveryManagementPanel extends JPanel {
 
     private final StudentRepository studentRepo;
     private final CourseRepository courseRepo;
+    private final RecoveryPlanRepository planRepo;
     private final EmailService emailService;
 
     private List<Student> students = new ArrayList<Student>();
@@ -53,12 +58,16 @@ public class RecoveryManagementPanel extends JPanel {
 
     private JButton btnSendEmail;
     private JButton btnRefresh;
+    private JButton btnGeneratePlans;
 
     private static final String PLANS_FILE = "data/recovery_plans.txt";
+    private static final String GRADES_FILE = "data/grades.txt";
+    private static final String PLAN_TEMPLATES_FILE = "data/recovery_plan_templates.txt";
 
     public RecoveryManagementPanel() {
         studentRepo = new StudentRepository("data/student_information.csv");
         courseRepo = new CourseRepository("data/course_assessment_information.csv");
+        planRepo = RecoveryPlanRepository.forFile(PLANS_FILE);
         emailService = new EmailService();
 
         loadInitialData();
@@ -130,6 +139,7 @@ public class RecoveryManagementPanel extends JPanel {
         btnLoadPlan = createButton("Load Plan");
         btnSavePlan = createButton("Save Plan");
         btnRefresh = createButton("Refresh Data");
+        btnGeneratePlans = createButton("Auto-Generate Plans");
 
         btnAddMilestone = createButton("Add");
         btnUpdateMilestone = createButton("Update");
@@ -204,6 +214,7 @@ public class RecoveryManagementPanel extends JPanel {
         buttonPanel.add(btnSavePlan);
         buttonPanel.add(btnSendEmail);
         buttonPanel.add(btnRefresh);
+        buttonPanel.add(btnGeneratePlans);
 
         gbc.gridx = 0; gbc.gridy = row; gbc.gridwidth = 2;
         panel.add(buttonPanel, gbc);
@@ -349,6 +360,7 @@ public class RecoveryManagementPanel extends JPanel {
         btnLoadPlan.addActionListener(e -> onLoadPlan());
         btnSavePlan.addActionListener(e -> onSavePlan());
         btnRefresh.addActionListener(e -> onRefresh());
+        btnGeneratePlans.addActionListener(e -> onGeneratePlans());
 
         btnAddMilestone.addActionListener(e -> onAddMilestone());
         btnUpdateMilestone.addActionListener(e -> onUpdateMilestone());
@@ -414,7 +426,16 @@ public class RecoveryManagementPanel extends JPanel {
             return;
         }
 
-        RecoveryPlan loaded = loadPlanFromFile(s.getStudentId(), c.getCourseId());
+        // unreadable plan file: "not found" would invite recreating a plan that exists
+        String loadError = planRepo.getLoadError();
+        if (loadError != null) {
+            JOptionPane.showMessageDialog(this,
+                    "Saved plans could not be read:\n" + loadError + "\n\nFix the file and press Refresh.",
+                    "Load Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        RecoveryPlan loaded = planRepo.find(s.getStudentId(), c.getCourseId());
         if (loaded == null) {
             JOptionPane.showMessageDialog(this, "No saved plan found for this student + course.", "Not Found", JOptionPane.INFORMATION_MESSAGE);
             return;
@@ -434,7 +455,7 @@ public class RecoveryManagementPanel extends JPanel {
         }
 
         try {
-            savePlanToFile(currentPlan);
+            planRepo.save(currentPlan);
             JOptionPane.showMessageDialog(this, "Plan saved to: " + PLANS_FILE, "Saved", JOptionPane.INFORMATION_MESSAGE);
         } catch (Exception e) {
             JOptionPane.showMessageDialog(this, "Save failed: " + e.getMessage(), "Save Error", JOptionPane.ERROR_MESSAGE);
@@ -443,6 +464,7 @@ public class RecoveryManagementPanel extends JPanel {
 
     private void onRefresh() {
         loadInitialData();
+        planRepo.reload();
         refreshStudentTable();
         refreshCourseList();
 
@@ -452,6 +474,42 @@ public class RecoveryManagementPanel extends JPanel {
                 JOptionPane.INFORMATION_MESSAGE);
     }
 
+    private void onGeneratePlans() {
+        int confirm = JOptionPane.showConfirmDialog(this,
+                "Create a recovery plan for every student whose latest attempt in a course is an F?\n" +
+                        "Existing plans are not changed.",
+                "Auto-Generate Plans",
+                JOptionPane.YES_NO_OPTION);
+        if (confirm != JOptionPane.YES_OPTION) return;
+
+        // reads the whole grades file and writes one journal commit: off the EDT
+        btnGeneratePlans.setEnabled(false);
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+
+        new SwingWorker<RecoveryPlanGenerator.Result, Void>() {
+            @Override
+            protected RecoveryPlanGenerator.Result doInBackground() throws Exception {
+                RecoveryPlanGenerator generator = new RecoveryPlanGenerator(
+                        new GradeFileHandler(GRADES_FILE), courseRepo, planRepo, PLAN_TEMPLATES_FILE);
+                return generator.generateForFailedCourses(LocalDate.now());
+            }
+
+            @Override
+            protected void done() {
+                btnGeneratePlans.setEnabled(true);
+                setCursor(Cursor.getDefaultCursor());
+                try {
+                    JOptionPane.showMessageDialog(RecoveryManagementPanel.this, get().toString(),
+                            "Plans Generated", JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception e) {
+                    Throwable cause = (e instanceof ExecutionException && e.getCause() != null) ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(RecoveryManagementPanel.this,
+                            "Generation failed: " + cause.getMessage(), "Generation Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
     private void onAddMilestone() {
         if (currentPlan == null) {
             JOptionPane.showMessageDialog(this, "Create or load a plan first.", "No Plan", JOptionPane.WARNING_MESSAGE);
@@ -558,7 +616,8 @@ public class RecoveryManagementPanel extends JPanel {
                     .append("\n");
         }
 
-        boolean ok = emailService.sendRecoveryPlanEmail(
+        // queued to the outbox: delivered in the background with retries
+        boolean ok = emailService.queueRecoveryPlanEmail(
                 s.getEmail(),
                 s.getFullName(),
                 currentPlan.getCourseId(),
@@ -566,7 +625,7 @@ public class RecoveryManagementPanel extends JPanel {
         );
 
         JOptionPane.showMessageDialog(this,
-                ok ? "Email sent to: " + s.getEmail() : "Email failed (check EmailService).",
+                ok ? "Email queued for: " + s.getEmail() : "Email could not be queued (check EmailService).",
                 "Email",
                 ok ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
     }
@@ -612,106 +671,4 @@ public class RecoveryManagementPanel extends JPanel {
         String x = safe(s);
         return x.isEmpty() ? def : x;
     }
-
-    // ---------------- file save/load ----------------
-    // Format:
-    // PLAN|studentId|courseId
-    // MILESTONE|title|deadline|completed
-
-    private RecoveryPlan loadPlanFromFile(String studentId, String courseId) {
-        File file = new File(PLANS_FILE);
-        if (!file.exists()) return null;
-
-        RecoveryPlan plan = null;
-        boolean found = false;
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty()) continue;
-
-                String[] parts = line.split("\\|");
-                if (parts.length < 1) continue;
-
-                if ("PLAN".equals(parts[0]) && parts.length >= 3) {
-                    String sid = safe(parts[1]);
-                    String cid = safe(parts[2]);
-
-                    if (sid.equalsIgnoreCase(studentId) && cid.equalsIgnoreCase(courseId)) {
-                        plan = new RecoveryPlan(studentId, courseId);
-                        found = true;
-                    } else {
-                        if (found) break; // finished reading our plan
-                        found = false;
-                    }
-                } else if ("MILESTONE".equals(parts[0]) && parts.length >= 4 && found) {
-                    String title = safe(parts[1]);
-                    String deadline = safe(parts[2]);
-                    boolean completed = "true".equalsIgnoreCase(safe(parts[3]));
-
-                    Milestone ms = new Milestone(title, deadline);
-                    ms.setCompleted(completed);
-                    plan.addMilestone(ms);
-                }
-            }
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Read error: " + e.getMessage(), "File Error", JOptionPane.ERROR_MESSAGE);
-        }
-
-        return plan;
-    }
-
-    private void savePlanToFile(RecoveryPlan plan) throws IOException {
-        File file = new File(PLANS_FILE);
-
-        File parent = file.getParentFile();
-        if (parent != null && !parent.exists()) parent.mkdirs();
-
-        // keep all old plans except the one we are updating
-        List<String> keepLines = new ArrayList<String>();
-
-        if (file.exists()) {
-            BufferedReader reader = new BufferedReader(new FileReader(file));
-            String line;
-            boolean skipMode = false;
-
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty()) continue;
-
-                String[] parts = line.split("\\|");
-
-                if (parts.length >= 3 && "PLAN".equals(parts[0])) {
-                    String sid = safe(parts[1]);
-                    String cid = safe(parts[2]);
-
-                    if (sid.equalsIgnoreCase(plan.getStudentId()) && cid.equalsIgnoreCase(plan.getCourseId())) {
-                        skipMode = true;
-                        continue;
-                    } else {
-                        skipMode = false;
-                    }
-                }
-
-                if (!skipMode) keepLines.add(line);
-            }
-            reader.close();
-        }
-
-        PrintWriter writer = new PrintWriter(new FileWriter(file));
-
-        for (String l : keepLines) writer.println(l);
-
-        writer.println("PLAN|" + plan.getStudentId() + "|" + plan.getCourseId());
-
-        for (Milestone m : plan.getMilestones()) {
-            String title = safe(m.getTitle()).replace("|", " ");
-            String deadline = safe(m.getDeadline()).replace("|", " ");
-            writer.println("MILESTONE|" + title + "|" + deadline + "|" + m.isCompleted());
-        }
-
-        writer.close();
-    }
 }
@@ -1,28 +1,43 @@
 package ui;
 
 import model.User;
+import services.AuthLogAnalytics;
 import services.LoginService;
+import services.LoginThrottle;
+import services.UserSession;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * UserManagementFrame (Admin only)
- * Add/Update/Activate/Deactivate/Reset + view auth log.
+ * Add/Update/Activate/Deactivate/Reset + view auth log / analytics + login lockouts.
  */
 public class UserManagementFrame extends JFrame {
 
     private static final Color MAIN_BLUE = new Color(0, 102, 204);
     private static final Font TITLE_FONT = new Font("Arial", Font.BOLD, 24);
+    private static final int AUTH_LOG_VIEW_LIMIT = 500;
+    private static final int TOP_USERS = 10;
+
+    private static final String[] ANALYTICS_WINDOWS = {"Last 24 hours", "Last 7 days", "Last 30 days", "Last 365 days"};
+    private static final int[] ANALYTICS_WINDOW_DAYS = {1, 7, 30, 365};
+
+    private static final DateTimeFormatter HOUR_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00").withZone(ZoneId.systemDefault());
 
     private JTable userTable;
     private DefaultTableModel tableModel;
 
     private JButton addButton, updateButton, deactivateButton, activateButton, resetPasswordButton;
-    private JButton logoutButton, viewLogButton;
+    private JButton logoutButton, viewLogButton, analyticsButton, lockoutsButton;
 
     private final LoginService loginService;
 
@@ -67,7 +82,7 @@ public class UserManagementFrame extends JFrame {
         topPanel.add(userInfoLabel, BorderLayout.EAST);
 
         // table
-        String[] columns = {"Username", "Role", "Email", "Status"};
+        String[] columns = {"Username", "Role", "Email", "Status", "Login"};
         tableModel = new DefaultTableModel(columns, 0) {
             @Override public boolean isCellEditable(int r, int c) { return false; }
         };
@@ -107,6 +122,8 @@ public class UserManagementFrame extends JFrame {
         activateButton = createBlueButton("Activate");
         resetPasswordButton = createBlueButton("Reset Password");
         viewLogButton = createBlueButton("View Auth Log");
+        analyticsButton = createBlueButton("Log Analytics");
+        lockoutsButton = createBlueButton("Lockouts");
         logoutButton = createBlueButton("Logout");
 
         buttonPanel.add(addButton);
@@ -115,6 +132,8 @@ public class UserManagementFrame extends JFrame {
         buttonPanel.add(activateButton);
         buttonPanel.add(resetPasswordButton);
         buttonPanel.add(viewLogButton);
+        buttonPanel.add(analyticsButton);
+        buttonPanel.add(lockoutsButton);
         buttonPanel.add(logoutButton);
 
         mainPanel.add(topPanel, BorderLayout.NORTH);
@@ -130,6 +149,8 @@ public class UserManagementFrame extends JFrame {
         activateButton.addActionListener(e -> setUserActive(true));
         resetPasswordButton.addActionListener(e -> resetPassword());
         viewLogButton.addActionListener(e -> viewAuthLog());
+        analyticsButton.addActionListener(e -> viewAuthAnalytics());
+        lockoutsButton.addActionListener(e -> viewLockouts());
         logoutButton.addActionListener(e -> logout());
     }
 
@@ -158,7 +179,8 @@ public class UserManagementFrame extends JFrame {
                     u.getUsername(),
                     u.getRole(),
                     u.getEmail(),
-                    u.isActive() ? "Active" : "Deactivated"
+                    u.isActive() ? "Active" : "Deactivated",
+                    loginService.isLockedOut(u.getUsername()) ? "Locked" : "OK"
             });
         }
     }
@@ -310,7 +332,8 @@ public class UserManagementFrame extends JFrame {
     }
 
     private void viewAuthLog() {
-        List<String> logEntries = loginService.readAuthLog();
+        // only the end of the log is read
+        List<String> logEntries = loginService.readRecentAuthLog(AUTH_LOG_VIEW_LIMIT);
 
         JTextArea textArea = new JTextArea(20, 55);
         textArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
@@ -320,7 +343,7 @@ public class UserManagementFrame extends JFrame {
             textArea.setText("No authentication log entries found.");
         } else {
             StringBuilder sb = new StringBuilder();
-            sb.append("AUTHENTICATION LOG\n");
+            sb.append("AUTHENTICATION LOG (last ").append(AUTH_LOG_VIEW_LIMIT).append(" entries)\n");
             sb.append("==========================================\n\n");
             for (String entry : logEntries) {
                 sb.append(entry).append("\n");
@@ -333,6 +356,125 @@ public class UserManagementFrame extends JFrame {
                 JOptionPane.INFORMATION_MESSAGE);
     }
 
+    private void viewAuthAnalytics() {
+        Object choice = JOptionPane.showInputDialog(this, "Time window:", "Auth Log Analytics",
+                JOptionPane.QUESTION_MESSAGE, null, ANALYTICS_WINDOWS, ANALYTICS_WINDOWS[1]);
+        if (choice == null) return;
+
+        int days = ANALYTICS_WINDOW_DAYS[Arrays.asList(ANALYTICS_WINDOWS).indexOf(choice)];
+        long now = System.currentTimeMillis();
+
+        // one streaming pass over the log (up to a year of gzip archives): off the EDT
+        UserSession session = loginService.getCurrentSession();
+        analyticsButton.setEnabled(false);
+        new SwingWorker<AuthLogAnalytics, Void>() {
+            @Override
+            protected AuthLogAnalytics doInBackground() {
+                return loginService.analyzeAuthLog(session, now - days * 24L * AuthLogAnalytics.HOUR_MS, now + 1);
+            }
+
+            @Override
+            protected void done() {
+                analyticsButton.setEnabled(true);
+                try {
+                    AuthLogAnalytics a = get();
+                    if (a == null) err("Access denied.");
+                    else showAuthAnalytics(choice, a);
+                } catch (Exception ex) {
+                    err("Log analytics failed: " + ex.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    private void showAuthAnalytics(Object choice, AuthLogAnalytics a) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("AUTH LOG ANALYTICS (").append(choice).append(")\n");
+        sb.append("==========================================\n");
+        sb.append("Records: ").append(a.getRecordCount()).append("   Users: ").append(a.getUserCount()).append("\n");
+        sb.append("Logins: ").append(a.getLogins()).append("   Failed: ").append(a.getFailed())
+                .append("   Logouts: ").append(a.getLogouts()).append("   Timeouts: ").append(a.getTimeouts()).append("\n\n");
+
+        sb.append("MOST ACTIVE USERS\n");
+        sb.append(String.format("%-24s %8s %8s %8s%n", "Username", "Logins", "Failed", "Events"));
+        for (AuthLogAnalytics.UserStat u : a.getTopUsers(TOP_USERS)) {
+            sb.append(String.format("%-24s %8d %8d %8d%n", u.username, u.logins, u.failed, u.total));
+        }
+
+        sb.append("\nFAILED-ATTEMPT SPIKES\n");
+        List<AuthLogAnalytics.HourCount> spikes = a.getFailedSpikes();
+        if (spikes.isEmpty()) sb.append("None\n");
+        for (AuthLogAnalytics.HourCount h : spikes) {
+            sb.append(h).append(" failed\n");
+        }
+
+        // hours with no activity are left out
+        sb.append("\nPER HOUR\n");
+        sb.append(String.format("%-18s %8s %8s%n", "Hour", "Logins", "Failed"));
+        long[] logins = a.getLoginsPerHour();
+        long[] failed = a.getFailedPerHour();
+        for (int h = logins.length - 1; h >= 0; h--) {
+            if (logins[h] == 0 && failed[h] == 0) continue;
+            sb.append(String.format("%-18s %8d %8d%n",
+                    HOUR_FORMAT.format(Instant.ofEpochMilli(a.getHourStart(h))), logins[h], failed[h]));
+        }
+
+        JTextArea textArea = new JTextArea(24, 60);
+        textArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        textArea.setEditable(false);
+        textArea.setText(sb.toString());
+        textArea.setCaretPosition(0);
+
+        JOptionPane.showMessageDialog(this, new JScrollPane(textArea),
+                "Auth Log Analytics", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    private void viewLockouts() {
+        List<LoginThrottle.Lockout> lockouts = loginService.getLockouts();
+
+        JTextArea textArea = new JTextArea(12, 55);
+        textArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        textArea.setEditable(false);
+
+        if (lockouts.isEmpty()) {
+            textArea.setText("No usernames or sources are locked out.");
+        } else {
+            StringBuilder sb = new StringBuilder();
+            sb.append("LOGIN LOCKOUTS (too many failed attempts)\n");
+            sb.append("==========================================\n\n");
+            for (LoginThrottle.Lockout l : lockouts) {
+                sb.append(l).append("\n");
+            }
+            textArea.setText(sb.toString());
+        }
+
+        // unlock the selected user, or everything
+        int viewRow = userTable.getSelectedRow();
+        String selected = (viewRow < 0) ? null
+                : String.valueOf(tableModel.getValueAt(userTable.convertRowIndexToModel(viewRow), 0));
+
+        String[] options = (selected != null && loginService.isLockedOut(selected))
+                ? new String[]{"Unlock " + selected, "Unlock All", "Close"}
+                : new String[]{"Unlock All", "Close"};
+
+        int choice = JOptionPane.showOptionDialog(this, new JScrollPane(textArea),
+                "Login Lockouts", JOptionPane.DEFAULT_OPTION, JOptionPane.INFORMATION_MESSAGE,
+                null, options, options[options.length - 1]);
+
+        if (choice < 0 || choice == options.length - 1) return;
+
+        boolean ok = options[choice].equals("Unlock All")
+                ? loginService.unlockAll()
+                : loginService.unlockUser(selected);
+
+        if (ok) {
+            msg("Lockout cleared.");
+            loadUsers();
+        } else {
+            err("Failed to clear lockout.");
+        }
+    }
+
     private void logout() {
         int confirm = JOptionPane.showConfirmDialog(this,
                 "Are you sure you want to logout?",